@@ -0,0 +1,45 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an interface for which the {@code processor} module generates a typed actor API.
+ *
+ * <p>For an interface {@code Greeter}, two classes are generated in the same package:
+ *
+ * <ul>
+ * <li>{@code GreeterActor}, an abstract {@link Actor} that implements {@code Greeter}. Its
+ * messages are {@code GreeterActor.Call} objects that carry the integer tag of the called method
+ * and its arguments, and its {@code onMessage} dispatches them to the methods of {@code Greeter}
+ * with a {@code switch} on the tag.</li>
+ * <li>{@code GreeterProxy}, a {@code Greeter} that encodes every method call as a {@code
+ * GreeterActor.Call} and sends it to a {@link Channel}.</li>
+ * </ul>
+ *
+ * <p>All methods of the interface have to return {@code void}, since calls are delivered
+ * asynchronously, and must not be generic or declare checked exceptions.
+ */
+@Documented
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface TypedActor {}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An {@link Interceptor} that measures CPU time and allocated memory of {@link Actor#onMessage
+ * deliveries} and aggregates them per {@link Actor} and per class of {@code Actors}.
+ *
+ * <p>To keep the overhead low, only every n-th delivery on each thread is measured; all reported
+ * values are estimates extrapolated from the measured deliveries. CPU time and allocated memory are
+ * measured with {@link ThreadMXBean}; if the JVM does not support measuring one of them, it is
+ * reported as zero.
+ *
+ * <p>Usage of individual {@code Actors} is only kept while the {@code Actors} are reachable.
+ */
+public final class Accounting implements Interceptor {
+
+    private final int mPeriod;
+
+    private final ThreadMXBean mThreads = ManagementFactory.getThreadMXBean();
+    @Nullable
+    private final com.sun.management.ThreadMXBean mAllocations;
+    private final boolean mMeasuresCpu;
+
+    private final ThreadLocal<int[]> mCounters = ThreadLocal.withInitial(() -> new int[1]);
+    private final Map<Actor<?>, Usage> mActors = Collections.synchronizedMap(new WeakHashMap<>());
+    private final Map<Class<?>, Usage> mClasses = new ConcurrentHashMap<>();
+
+    /**
+     * Creates an {@link Interceptor} that will measure every n-th delivery on each thread.
+     *
+     * @param period the number of deliveries per measured one (i.e. {@code 1} measures all).
+     */
+    public Accounting(final int period) {
+        if (period < 1) {
+            throw new IllegalArgumentException("period must be positive");
+        }
+
+        mPeriod = period;
+        mMeasuresCpu = mThreads.isCurrentThreadCpuTimeSupported();
+        if (mMeasuresCpu && !mThreads.isThreadCpuTimeEnabled()) {
+            mThreads.setThreadCpuTimeEnabled(true);
+        }
+        mAllocations = allocations(mThreads);
+    }
+
+    @Override
+    public void intercept(final Actor<?> actor, final Runnable delivery) {
+        final int[] counter = mCounters.get();
+        if (++counter[0] < mPeriod) {
+            delivery.run();
+            return;
+        }
+        counter[0] = 0;
+
+        final long thread = Thread.currentThread().getId();
+        final long cpu = cpuTime();
+        final long allocated = allocatedBytes(thread);
+        try {
+            delivery.run();
+        } finally {
+            final long usedCpu = cpuTime() - cpu;
+            final long usedMemory = allocatedBytes(thread) - allocated;
+            mActors.computeIfAbsent(actor, Usage::of).add(usedCpu, usedMemory);
+            mClasses.computeIfAbsent(actor.getClass(), Usage::of).add(usedCpu, usedMemory);
+        }
+    }
+
+    /**
+     * Returns the usage of at most the given number of {@link Actor Actors} that come first in the
+     * given order.
+     */
+    public List<Usage> getTopActors(final int count, final Comparator<? super Usage> order) {
+        final List<Usage> usages;
+        synchronized (mActors) {
+            usages = top(mActors.values(), count, order);
+        }
+        return usages;
+    }
+
+    /**
+     * Returns the usage of at most the given number of classes of {@link Actor Actors} that come
+     * first in the given order.
+     */
+    public List<Usage> getTopClasses(final int count, final Comparator<? super Usage> order) {
+        return top(mClasses.values(), count, order);
+    }
+
+    private long cpuTime() {
+        return mMeasuresCpu ? mThreads.getCurrentThreadCpuTime() : 0;
+    }
+
+    private long allocatedBytes(final long thread) {
+        return (mAllocations == null) ? 0 : mAllocations.getThreadAllocatedBytes(thread);
+    }
+
+    private List<Usage> top(final Collection<Usage> usages,
+                            final int count,
+                            final Comparator<? super Usage> order) {
+        final List<Usage> snapshots = new ArrayList<>(usages.size());
+        for (final Usage usage : usages) {
+            snapshots.add(usage.snapshot(mPeriod));
+        }
+        snapshots.sort(order);
+        return new ArrayList<>(snapshots.subList(0, Math.min(count, snapshots.size())));
+    }
+
+    @Nullable
+    private static com.sun.management.ThreadMXBean allocations(final ThreadMXBean threads) {
+        try {
+            if (threads instanceof com.sun.management.ThreadMXBean) {
+                final com.sun.management.ThreadMXBean allocations =
+                        (com.sun.management.ThreadMXBean) threads;
+                if (allocations.isThreadAllocatedMemorySupported()) {
+                    allocations.setThreadAllocatedMemoryEnabled(true);
+                    return allocations;
+                }
+            }
+        } catch (final LinkageError | UnsupportedOperationException ignored) {
+            // measuring of allocated memory is not available on this JVM
+        }
+        return null;
+    }
+
+    /** The estimated CPU time and allocated memory used by deliveries of messages. */
+    public static final class Usage {
+
+        /** Orders usages by descending CPU time. */
+        public static final Comparator<Usage> BY_CPU_TIME =
+                Comparator.comparingLong((Usage usage) -> usage.mCpuTime).reversed();
+        /** Orders usages by descending allocated memory. */
+        public static final Comparator<Usage> BY_ALLOCATED_BYTES =
+                Comparator.comparingLong((Usage usage) -> usage.mAllocatedBytes).reversed();
+
+        private final String mName;
+        private long mDeliveries = 0;
+        private long mCpuTime = 0;
+        private long mAllocatedBytes = 0;
+
+        private Usage(final String name) {
+            mName = name;
+        }
+
+        /** Returns the name of the {@link Actor} or the class of {@code Actors}. */
+        public String getName() {
+            return mName;
+        }
+
+        /** Returns the estimated number of deliveries. */
+        public long getDeliveries() {
+            return mDeliveries;
+        }
+
+        /** Returns the estimated CPU time used by deliveries. */
+        public long getCpuTime(final TimeUnit unit) {
+            return unit.convert(mCpuTime, TimeUnit.NANOSECONDS);
+        }
+
+        /** Returns the estimated number of bytes allocated by deliveries. */
+        public long getAllocatedBytes() {
+            return mAllocatedBytes;
+        }
+
+        @Override
+        public String toString() {
+            return mName + ": " + mDeliveries + " deliveries, " + mCpuTime + " ns CPU time, "
+                    + mAllocatedBytes + " bytes allocated";
+        }
+
+        synchronized void add(final long cpuTime, final long allocatedBytes) {
+            mDeliveries++;
+            mCpuTime += cpuTime;
+            mAllocatedBytes += allocatedBytes;
+        }
+
+        /** Returns a copy of this usage extrapolated from the given sampling period. */
+        synchronized Usage snapshot(final int period) {
+            final Usage snapshot = new Usage(mName);
+            snapshot.mDeliveries = mDeliveries * period;
+            snapshot.mCpuTime = mCpuTime * period;
+            snapshot.mAllocatedBytes = mAllocatedBytes * period;
+            return snapshot;
+        }
+
+        static Usage of(final Actor<?> actor) {
+            return new Usage(actor.getClass().getName() + '@'
+                    + Integer.toHexString(java.lang.System.identityHashCode(actor)));
+        }
+
+        static Usage of(final Class<?> type) {
+            return new Usage(type.getName());
+        }
+    }
+}
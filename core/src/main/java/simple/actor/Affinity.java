@@ -0,0 +1,314 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor;
+
+import com.sun.jna.LastErrorException;
+import com.sun.jna.Library;
+import com.sun.jna.Native;
+import com.sun.jna.Platform;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static simple.actor.Checks.checkNotNull;
+
+/**
+ * A {@link ThreadFactory} that pins every thread it creates to one of the configured CPU sets.
+ *
+ * <p>Threads are assigned CPU sets in round-robin order and pin themselves, using {@code
+ * sched_setaffinity}, when they start running. Any {@link Runner} that accepts a {@code
+ * ThreadFactory} can be given an {@code Affinity} to keep its dispatcher threads on isolated
+ * cores.
+ *
+ * <p>Pinning is only supported on Linux when JNA is available on the class path. Elsewhere, or if
+ * the requested CPUs are not available, threads still run but are left to the OS scheduler; the
+ * {@link #getPlacements() placements} report what was requested and what is in effect, so the
+ * fallback is never silent.
+ */
+public final class Affinity implements ThreadFactory {
+
+    private static final int CPU_SETSIZE = 1024;
+    private static final boolean SUPPORTED = isAvailable();
+
+    private final ThreadFactory mFactory;
+    private final List<BitSet> mCpus;
+
+    private final AtomicInteger mNext = new AtomicInteger(0 /*initial value*/);
+    private final Map<Thread, Placement> mPlacements = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a factory that will pin threads to given CPU sets.
+     *
+     * @param cpus the CPU sets, one of which is assigned to each created thread.
+     */
+    public Affinity(final List<BitSet> cpus) {
+        this(Executors.defaultThreadFactory(), cpus);
+    }
+
+    /**
+     * Creates a factory that will pin threads created by the given {@link ThreadFactory} to given
+     * CPU sets.
+     *
+     * @param factory the {@code ThreadFactory} that creates threads.
+     * @param cpus    the CPU sets, one of which is assigned to each created thread.
+     */
+    public Affinity(final ThreadFactory factory, final List<BitSet> cpus) {
+        checkNotNull(factory, "factory");
+        checkNotNull(cpus, "cpus");
+        if (cpus.isEmpty()) {
+            throw new IllegalArgumentException("cpus must not be empty");
+        }
+
+        mFactory = factory;
+        mCpus = new ArrayList<>(cpus.size());
+        for (final BitSet set : cpus) {
+            checkNotNull(set, "cpu set");
+            if (set.isEmpty() || (set.length() > CPU_SETSIZE)) {
+                throw new IllegalArgumentException("invalid cpu set " + set);
+            }
+            mCpus.add((BitSet) set.clone());
+        }
+    }
+
+    @Override
+    public Thread newThread(final Runnable runnable) {
+        final BitSet requested = mCpus.get(Math.floorMod(mNext.getAndIncrement(), mCpus.size()));
+        return mFactory.newThread(() -> {
+            final Thread thread = Thread.currentThread();
+            final boolean pinned = setCurrent(requested);
+            mPlacements.put(thread, new Placement(thread, requested, getCurrent(), pinned));
+            try {
+                runnable.run();
+            } finally {
+                mPlacements.remove(thread);
+            }
+        });
+    }
+
+    /**
+     * Returns the placements of all running threads created by this factory.
+     *
+     * @return the placements of running threads.
+     */
+    public List<Placement> getPlacements() {
+        return Collections.unmodifiableList(new ArrayList<>(mPlacements.values()));
+    }
+
+    /**
+     * Returns whether pinning threads to CPUs is supported in the current environment.
+     *
+     * @return {@code true} if pinning is supported, otherwise {@code false}.
+     */
+    public static boolean isSupported() {
+        return SUPPORTED;
+    }
+
+    /**
+     * Pins the current thread to given CPUs.
+     *
+     * @param cpus the CPUs on which the current thread may run.
+     *
+     * @return {@code true} if the thread was pinned, otherwise {@code false}.
+     */
+    public static boolean setCurrent(final BitSet cpus) {
+        checkNotNull(cpus, "cpus");
+        if (!isSupported() || cpus.isEmpty() || (cpus.length() > CPU_SETSIZE)) {
+            return false;
+        }
+
+        final long[] mask = new long[CPU_SETSIZE / Long.SIZE];
+        final long[] words = cpus.toLongArray();
+        java.lang.System.arraycopy(words, 0, mask, 0, words.length);
+        return Linux.setAffinity(mask);
+    }
+
+    /**
+     * Returns the CPUs on which the current thread may run.
+     *
+     * @return the CPUs of the current thread, or {@code null} if they cannot be determined.
+     */
+    @Nullable
+    public static BitSet getCurrent() {
+        if (!isSupported()) {
+            return null;
+        }
+
+        final long[] mask = new long[CPU_SETSIZE / Long.SIZE];
+        return Linux.getAffinity(mask) ? BitSet.valueOf(mask) : null;
+    }
+
+    /**
+     * Parses a CPU list in the format used by Linux, for example {@code "0-3,6"}.
+     *
+     * @param list the CPU list.
+     *
+     * @return the parsed CPU set.
+     */
+    public static BitSet parse(final String list) {
+        checkNotNull(list, "list");
+
+        final BitSet cpus = new BitSet();
+        for (final String range : list.split(",")) {
+            final String[] bounds = range.trim().split("-", 2);
+            try {
+                final int from = Integer.parseInt(bounds[0].trim());
+                final int to = (bounds.length > 1) ? Integer.parseInt(bounds[1].trim()) : from;
+                if ((from < 0) || (to < from) || (to >= CPU_SETSIZE)) {
+                    throw new IllegalArgumentException("invalid cpu range " + range);
+                }
+                cpus.set(from, to + 1);
+            } catch (final NumberFormatException e) {
+                throw new IllegalArgumentException("invalid cpu range " + range, e);
+            }
+        }
+
+        return cpus;
+    }
+
+    private static boolean isAvailable() {
+        try {
+            return Linux.isAvailable();
+        } catch (final LinkageError e) {
+            // JNA is not on the class path
+            return false;
+        }
+    }
+
+    /** The CPUs requested for and actually used by a thread created by an {@link Affinity}. */
+    public static final class Placement {
+
+        private final Thread mThread;
+        private final BitSet mRequested;
+        @Nullable
+        private final BitSet mEffective;
+        private final boolean mPinned;
+
+        Placement(final Thread thread,
+                  final BitSet requested,
+                  @Nullable final BitSet effective,
+                  final boolean pinned) {
+            mThread = thread;
+            mRequested = requested;
+            mEffective = effective;
+            mPinned = pinned;
+        }
+
+        /**
+         * Returns the thread.
+         *
+         * @return the thread.
+         */
+        public Thread getThread() {
+            return mThread;
+        }
+
+        /**
+         * Returns the CPUs on which the thread was requested to run.
+         *
+         * @return the requested CPUs.
+         */
+        public BitSet getRequested() {
+            return (BitSet) mRequested.clone();
+        }
+
+        /**
+         * Returns the CPUs on which the thread may actually run.
+         *
+         * @return the effective CPUs, or {@code null} if they cannot be determined.
+         */
+        @Nullable
+        public BitSet getEffective() {
+            return (mEffective == null) ? null : (BitSet) mEffective.clone();
+        }
+
+        /**
+         * Returns whether the thread was pinned to the requested CPUs.
+         *
+         * @return {@code true} if the thread was pinned, otherwise {@code false}.
+         */
+        public boolean isPinned() {
+            return mPinned;
+        }
+
+        @Override
+        public String toString() {
+            return mThread.getName() + " requested " + mRequested
+                    + (mPinned ? " pinned to " : " running on ")
+                    + ((mEffective == null) ? "unknown cpus" : mEffective.toString());
+        }
+    }
+
+    /**
+     * Calls into the C library through JNA. All references to JNA are kept in this class, so that
+     * {@link Affinity} can still be loaded when JNA is not on the class path.
+     */
+    private static final class Linux {
+
+        @Nullable
+        private static final CLibrary LIBRARY = load();
+
+        private Linux() {}
+
+        static boolean isAvailable() {
+            return LIBRARY != null;
+        }
+
+        static boolean setAffinity(final long[] mask) {
+            try {
+                return LIBRARY.sched_setaffinity(0 /*current thread*/, mask.length * 8, mask) == 0;
+            } catch (final LastErrorException e) {
+                return false;
+            }
+        }
+
+        static boolean getAffinity(final long[] mask) {
+            try {
+                return LIBRARY.sched_getaffinity(0 /*current thread*/, mask.length * 8, mask) == 0;
+            } catch (final LastErrorException e) {
+                return false;
+            }
+        }
+
+        @Nullable
+        private static CLibrary load() {
+            try {
+                return (Platform.isLinux() && Platform.is64Bit())
+                        ? Native.loadLibrary("c", CLibrary.class)
+                        : null;
+            } catch (final LinkageError e) {
+                // the C library cannot be loaded
+                return null;
+            }
+        }
+    }
+
+    private interface CLibrary extends Library {
+
+        int sched_setaffinity(int pid, int size, long[] mask) throws LastErrorException;
+
+        int sched_getaffinity(int pid, int size, long[] mask) throws LastErrorException;
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.function.Function;
+
+import static simple.actor.Checks.checkNotNull;
+
+/**
+ * A value that is updated by an {@link Actor} and read by any thread without messages.
+ *
+ * <p>Updates are functions sent to the agent; they are applied one at a time, in the same order
+ * they were sent, by an {@code Actor} registered with the agent's {@link Context}. After each
+ * update, the new value is published through a volatile reference, so {@link #get} is wait-free
+ * and always returns the latest published value, without queueing behind updates.
+ *
+ * <p>Readers share the published values, so values must be immutable, or at least never modified
+ * after they are published; an update should return a new value instead of changing the old one.
+ *
+ * @param <T> the type of the value.
+ */
+public final class Agent<T> implements Channel<Function<? super T, ? extends T>> {
+
+    private final Channel<Update<T>> mChannel;
+
+    private volatile T mValue;
+
+    /**
+     * Creates an agent with the given initial value, which will apply updates using an {@link
+     * Actor} registered with the given {@link Context}.
+     *
+     * @param context the {@code Context} with which the agent's {@code Actor} will be registered.
+     * @param initial the initial value.
+     */
+    public Agent(final Context context, final T initial) {
+        checkNotNull(context, "context");
+        mValue = initial;
+        mChannel = context.register(new Updater<>(this));
+    }
+
+    /**
+     * Returns the latest published value.
+     *
+     * @return the current value.
+     */
+    public T get() {
+        return mValue;
+    }
+
+    /**
+     * Sends the given update, which will be applied to the value after all previously sent
+     * updates.
+     */
+    @Override
+    public boolean send(final Function<? super T, ? extends T> update) {
+        return send(update, null);
+    }
+
+    /**
+     * Sends the given update, which will be applied to the value after all previously sent
+     * updates. Once the new value is published, it is also sent to the given {@link Channel}.
+     *
+     * @param update  the function that computes the new value from the current one.
+     * @param updated the {@code Channel} that receives the new value, or {@code null}.
+     *
+     * @return {@code true} if agent has not been stopped; otherwise {@code false}.
+     */
+    public boolean send(final Function<? super T, ? extends T> update,
+                        @Nullable final Channel<? super T> updated) {
+        checkNotNull(update, "update");
+        return mChannel.send(new Update<>(update, updated));
+    }
+
+    /**
+     * Stops the agent. Previously sent updates are still applied, but no more can be sent. The
+     * value can still be read.
+     */
+    @Override
+    public void stop() {
+        mChannel.stop();
+    }
+
+    private static final class Update<T> {
+
+        final Function<? super T, ? extends T> mFunction;
+        @Nullable
+        final Channel<? super T> mUpdated;
+
+        Update(final Function<? super T, ? extends T> function,
+               @Nullable final Channel<? super T> updated) {
+            mFunction = function;
+            mUpdated = updated;
+        }
+    }
+
+    /** Applies updates to the agent's value and publishes the results. */
+    private static final class Updater<T> extends Actor<Update<T>> {
+
+        private final Agent<T> mAgent;
+
+        Updater(final Agent<T> agent) {
+            mAgent = agent;
+        }
+
+        @Override
+        protected void onMessage(final Update<T> update) {
+            final T value = update.mFunction.apply(mAgent.mValue);
+            mAgent.mValue = value;
+            if (update.mUpdated != null) {
+                update.mUpdated.send(value);
+            }
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor;
+
+import net.jcip.annotations.GuardedBy;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static simple.actor.Checks.checkNotNull;
+
+/**
+ * A {@link Channel} that accumulates messages and sends them downstream in batches.
+ *
+ * <p>A batch is sent when it reaches the configured size or when the configured linger time has
+ * passed since its first message, whichever comes first. Linger times are tracked by a {@link
+ * ScheduledExecutorService} that can be shared by many batching channels. When the channel is
+ * stopped, the remaining messages are sent as a last batch before the downstream {@code Channel}
+ * is stopped.
+ *
+ * <p>The downstream {@code Channel} receives one message per batch, so an {@link Actor} behind it
+ * pays the enqueue cost once per batch and can amortize its own work, such as I/O, over the whole
+ * batch.
+ *
+ * @param <M> the type of sent messages.
+ */
+public final class Batching<M> implements Channel<M> {
+
+    private final Object mLock = new Object();
+
+    private final Channel<? super List<M>> mDownstream;
+    private final int mSize;
+    private final long mLinger;
+    private final ScheduledExecutorService mTimer;
+
+    @GuardedBy("mLock")
+    private List<M> mBatch;
+    @GuardedBy("mLock")
+    @Nullable
+    private ScheduledFuture<?> mFlush;
+    @GuardedBy("mLock")
+    private long mGeneration = 0;
+    @GuardedBy("mLock")
+    private boolean mStopped = false;
+
+    /**
+     * Creates a channel that will send batches of at most the given size to the given {@link
+     * Channel}.
+     *
+     * @param downstream the {@code Channel} that receives batches.
+     * @param size       the maximum number of messages in a batch.
+     * @param linger     the maximum time a message waits for its batch to be sent.
+     * @param unit       the unit of the linger time.
+     * @param timer      the {@link ScheduledExecutorService} that sends batches after linger time.
+     */
+    public Batching(final Channel<? super List<M>> downstream,
+                    final int size,
+                    final long linger,
+                    final TimeUnit unit,
+                    final ScheduledExecutorService timer) {
+        checkNotNull(downstream, "downstream");
+        checkNotNull(unit, "unit");
+        checkNotNull(timer, "timer");
+        if (size < 1) {
+            throw new IllegalArgumentException("size must be positive");
+        }
+        if (linger < 0) {
+            throw new IllegalArgumentException("linger must not be negative");
+        }
+
+        mDownstream = downstream;
+        mSize = size;
+        mLinger = unit.toNanos(linger);
+        mTimer = timer;
+        mBatch = new ArrayList<>(size);
+    }
+
+    @Override
+    public boolean send(final M message) {
+        synchronized (mLock) {
+            if (mStopped) {
+                return false;
+            }
+
+            mBatch.add(message);
+            if (mBatch.size() >= mSize) {
+                return flush();
+            }
+            if (mBatch.size() == 1) {
+                final long generation = mGeneration;
+                try {
+                    mFlush = mTimer.schedule(() -> onLinger(generation),
+                                             mLinger,
+                                             TimeUnit.NANOSECONDS);
+                } catch (final RejectedExecutionException e) {
+                    // the timer has been shut down, so don't keep messages waiting
+                    return flush();
+                }
+            }
+            return true;
+        }
+    }
+
+    /** Sends the remaining messages as the last batch and stops the downstream {@link Channel}. */
+    @Override
+    public void stop() {
+        synchronized (mLock) {
+            if (!mStopped) {
+                flush();
+                mStopped = true;
+                mDownstream.stop();
+            }
+        }
+    }
+
+    /**
+     * Sends the current batch, if it has not already been sent.
+     *
+     * @param generation the generation of the batch.
+     */
+    private void onLinger(final long generation) {
+        synchronized (mLock) {
+            if (!mStopped && (generation == mGeneration)) {
+                flush();
+            }
+        }
+    }
+
+    /**
+     * Sends the current batch and starts a new one.
+     *
+     * @return {@code false} if the downstream {@link Channel} has been stopped; otherwise {@code
+     * true}.
+     */
+    @GuardedBy("mLock")
+    private boolean flush() {
+        mGeneration++;
+        if (mFlush != null) {
+            mFlush.cancel(false /*don't interrupt*/);
+            mFlush = null;
+        }
+        if (mBatch.isEmpty()) {
+            return true;
+        }
+
+        final List<M> batch = mBatch;
+        mBatch = new ArrayList<>(mSize);
+        if (!mDownstream.send(batch)) {
+            mStopped = true;
+            return false;
+        }
+        return true;
+    }
+}
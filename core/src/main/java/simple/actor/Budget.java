@@ -0,0 +1,266 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static simple.actor.Checks.checkNotNull;
+
+/**
+ * A limit on the total size of messages that are sent but not yet delivered, shared by all {@link
+ * Actor Actors} of a {@link System}.
+ *
+ * <p>The size of each message is estimated by a {@link Sizer}; by default every message counts as
+ * one, which turns the budget into a limit on the number of queued messages. A message takes its
+ * size from the budget when it is sent and returns it once it has been {@link Actor#onMessage
+ * delivered}. When the budget is exhausted, a send waits up to the configured timeout for other
+ * messages to be delivered. If the budget is still exhausted, {@link System#trySend} fails and
+ * returns {@code false}, without stopping the {@link Channel}, so it can be retried later. A plain
+ * {@link Channel#send send}, whose {@code false} means that the {@code Channel} has been stopped,
+ * takes the size anyway and leaves the budget exceeded until enough messages are delivered.
+ *
+ * <p>A single message larger than the whole budget is accepted only when nothing else is queued,
+ * so that it is not rejected forever.
+ *
+ * <p>A send never waits for the budget while the sending thread is delivering a message to an
+ * {@code Actor} of the same {@code System}. With a {@link Runner} such as {@link
+ * CallingThreadRunner} or {@link PinnedRunner}, that thread may be the only one that can deliver
+ * the queued messages and release the budget, so waiting would only stall it until the timeout.
+ * Such sends give up right away, as if the budget had no timeout.
+ *
+ * <p>A budget is given to a {@code System} with {@link System.Builder#budget}.
+ */
+public final class Budget {
+
+    /** Sizer that counts every message as one. */
+    public static final Sizer COUNT = message -> 1;
+
+    private final Sizer mSizer;
+    private final long mCapacity;
+    private final long mTimeout;
+
+    private final AtomicLong mUsed = new AtomicLong(0 /*initial value*/);
+    private final Map<Class<?>, AtomicLong> mOccupancy = new ConcurrentHashMap<>();
+
+    private final Lock mLock = new ReentrantLock();
+    private final Condition mReleased = mLock.newCondition();
+    /** Written only while holding {@code mLock}. */
+    private volatile int mWaiting = 0;
+    /** The number of deliveries in progress on each thread, if sends can wait. */
+    private final ThreadLocal<int[]> mDelivering = ThreadLocal.withInitial(() -> new int[1]);
+
+    /**
+     * Creates a budget of the given capacity. Sends do not wait when the budget is exhausted.
+     *
+     * @param capacity the total size of queued messages.
+     * @param sizer    the {@link Sizer} that estimates the size of messages.
+     */
+    public Budget(final long capacity, final Sizer sizer) {
+        this(capacity, sizer, 0, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Creates a budget of the given capacity. Sends wait up to the given timeout when the budget is
+     * exhausted.
+     *
+     * @param capacity the total size of queued messages.
+     * @param sizer    the {@link Sizer} that estimates the size of messages.
+     * @param timeout  the maximum time a send waits for the budget.
+     * @param unit     the unit of the timeout.
+     */
+    public Budget(final long capacity,
+                  final Sizer sizer,
+                  final long timeout,
+                  final TimeUnit unit) {
+        checkNotNull(sizer, "sizer");
+        checkNotNull(unit, "unit");
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        if (timeout < 0) {
+            throw new IllegalArgumentException("timeout must not be negative");
+        }
+
+        mCapacity = capacity;
+        mSizer = sizer;
+        mTimeout = unit.toNanos(timeout);
+    }
+
+    /**
+     * Returns the capacity of the budget.
+     *
+     * @return the capacity.
+     */
+    public long getCapacity() {
+        return mCapacity;
+    }
+
+    /**
+     * Returns the total size of messages that are currently queued.
+     *
+     * @return the used part of the budget.
+     */
+    public long getUsed() {
+        return mUsed.get();
+    }
+
+    /**
+     * Returns the total size of currently queued messages for each class of {@link Actor Actors}
+     * that have any.
+     *
+     * @return the occupancy of the budget by actor class.
+     */
+    public Map<Class<?>, Long> getOccupancy() {
+        final Map<Class<?>, Long> occupancy = new HashMap<>();
+        for (final Map.Entry<Class<?>, AtomicLong> entry : mOccupancy.entrySet()) {
+            final long used = entry.getValue().get();
+            if (used > 0) {
+                occupancy.put(entry.getKey(), used);
+            }
+        }
+        return occupancy;
+    }
+
+    /**
+     * Estimates the size of the given message.
+     *
+     * @param message the message.
+     *
+     * @return the estimated size.
+     */
+    long sizeOf(final Object message) {
+        return Math.max(mSizer.sizeOf(message), 0);
+    }
+
+    /**
+     * Takes the given size from the budget on behalf of the given {@link Actor}, waiting up to the
+     * timeout if the budget is exhausted.
+     *
+     * @param actor  the {@code Actor} that will receive the message.
+     * @param size   the size of the message.
+     * @param exceed if the size is taken even if the budget is still exhausted after the timeout.
+     *
+     * @return {@code true} if the size was taken, otherwise {@code false}.
+     */
+    boolean acquire(final Actor<?> actor, final long size, final boolean exceed) {
+        if (!reserve(size) && !await(size)) {
+            if (!exceed) {
+                return false;
+            }
+            mUsed.addAndGet(size);
+        }
+        mOccupancy.computeIfAbsent(actor.getClass(), type -> new AtomicLong()).addAndGet(size);
+        return true;
+    }
+
+    /**
+     * Returns the given size, previously {@link #acquire acquired} for the given {@link Actor}, to
+     * the budget.
+     *
+     * @param actor the {@code Actor} that received the message.
+     * @param size  the size of the message.
+     */
+    void release(final Actor<?> actor, final long size) {
+        mOccupancy.get(actor.getClass()).addAndGet(-size);
+        mUsed.addAndGet(-size);
+        if (mWaiting > 0) {
+            mLock.lock();
+            try {
+                mReleased.signalAll();
+            } finally {
+                mLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Marks the start of a delivery on the current thread, during which sends do not wait for the
+     * budget.
+     *
+     * @return {@code true} if the delivery has to be {@link #exit exited}, otherwise {@code false}.
+     */
+    boolean enter() {
+        if (mTimeout == 0) {
+            return false;
+        }
+        mDelivering.get()[0]++;
+        return true;
+    }
+
+    /** Marks the end of a delivery that was {@link #enter entered} on the current thread. */
+    void exit() {
+        mDelivering.get()[0]--;
+    }
+
+    private boolean reserve(final long size) {
+        while (true) {
+            final long used = mUsed.get();
+            if ((used > 0) && ((used + size) > mCapacity)) {
+                return false;
+            }
+            if (mUsed.compareAndSet(used, used + size)) {
+                return true;
+            }
+        }
+    }
+
+    private boolean await(final long size) {
+        if ((mTimeout == 0) || (mDelivering.get()[0] > 0)) {
+            return false;
+        }
+
+        long remaining = mTimeout;
+        mLock.lock();
+        try {
+            mWaiting++;
+            while (!reserve(size)) {
+                if (remaining <= 0) {
+                    return false;
+                }
+                remaining = mReleased.awaitNanos(remaining);
+            }
+            return true;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            mWaiting--;
+            mLock.unlock();
+        }
+    }
+
+    /** Estimates the size of messages. */
+    @FunctionalInterface
+    public interface Sizer {
+
+        /**
+         * Returns the estimated size of the given message.
+         *
+         * @param message the message.
+         *
+         * @return the estimated size.
+         */
+        long sizeOf(Object message);
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * A {@link Runner} that executes {@link Runnable Runnables} on the calling thread without any
+ * thread handoffs.
+ *
+ * <p>Unlike executing a {@code Runnable} directly, the runner never executes {@code Runnables}
+ * recursively. When a {@code Runnable} is sent while the calling thread is already executing one,
+ * the sent {@code Runnable} is placed on the thread's work list and executed after the current one
+ * returns. Therefore, chains of {@link Actor Actors} sending messages to each other run with a
+ * bounded stack depth.
+ *
+ * <p>{@code Runnables} sent to the same {@link Channel} are executed one at a time, in the same
+ * order they were sent, even when they are sent from different threads. If a {@code Runnable} is
+ * sent to a {@code Channel} that is currently executing on another thread, it will be executed on
+ * that other thread.
+ */
+public final class CallingThreadRunner implements Runner {
+
+    private static final int BATCH = 64;
+
+    private static final ThreadLocal<Trampoline> TRAMPOLINE =
+            ThreadLocal.withInitial(Trampoline::new);
+
+    @Override
+    public Channel<Runnable> create() {
+        return new CallingThreadChannel();
+    }
+
+    /** A {@link SerialChannel} that is executed on the work list of the calling thread. */
+    private static final class CallingThreadChannel extends SerialChannel {
+
+        CallingThreadChannel() {
+            super(BATCH);
+        }
+
+        @Override
+        protected boolean schedule() {
+            TRAMPOLINE.get().execute(this);
+            return true;
+        }
+    }
+
+    /** The work list of a single thread. */
+    private static final class Trampoline {
+
+        private final Queue<Runnable> mWork = new ArrayDeque<>();
+        private boolean mRunning = false;
+
+        /**
+         * Places the given {@link Runnable} on the work list. Unless the work list is already
+         * being executed further up the stack, it is executed until empty.
+         *
+         * <p>If any of the executed {@code Runnables} throws an exception, the work list will
+         * still be executed until empty and the first exception will be rethrown afterwards.
+         */
+        void execute(final Runnable runnable) {
+            mWork.add(runnable);
+            if (mRunning) {
+                return;
+            }
+
+            mRunning = true;
+            @Nullable RuntimeException failure = null;
+            try {
+                Runnable next;
+                while ((next = mWork.poll()) != null) {
+                    try {
+                        next.run();
+                    } catch (final RuntimeException e) {
+                        if (failure == null) {
+                            failure = e;
+                        }
+                    }
+                }
+            } finally {
+                mRunning = false;
+            }
+
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+}
@@ -0,0 +1,327 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor;
+
+import net.jcip.annotations.GuardedBy;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+import static simple.actor.Checks.checkNotNull;
+
+/**
+ * A {@link Channel} that records every sent message into a binary log before passing it on.
+ *
+ * <p>Messages are {@link Codec#encode encoded} and written, together with the time they were sent,
+ * into a direct buffer that is written to the file whenever it fills up, when the channel is
+ * {@link #flush flushed} and when it is {@link #stop stopped}. The log starts with a four byte
+ * magic number, followed by a record for each message: the time in nanoseconds since the capture
+ * started as a {@code long}, the length of the encoded message as an {@code int} and the encoded
+ * message itself. A log can be read with a {@link Reader}.
+ *
+ * <p>Capturing never gets in the way of the messages: if writing the log fails, capturing stops,
+ * the {@link #getFailure failure} is kept and messages are still passed on.
+ *
+ * @param <M> the type of sent messages.
+ */
+public final class Capture<M> implements Channel<M> {
+
+    private static final int MAGIC = 0x53414301;
+    private static final int RECORD_HEADER = Long.BYTES + Integer.BYTES;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Object mLock = new Object();
+
+    private final Channel<? super M> mDelegate;
+    private final Codec<M> mCodec;
+    private final FileChannel mFile;
+    private final long mStart = java.lang.System.nanoTime();
+
+    @GuardedBy("mLock")
+    private final ByteBuffer mBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    @GuardedBy("mLock")
+    private boolean mCapturing = true;
+    @GuardedBy("mLock")
+    @Nullable
+    private IOException mFailure;
+
+    /**
+     * Creates a channel that will record messages into the given file, replacing its contents, and
+     * pass them on to the given {@link Channel}.
+     *
+     * @param delegate the {@code Channel} to which messages are passed on.
+     * @param codec    the {@link Codec} that encodes messages.
+     * @param path     the file into which messages are recorded.
+     *
+     * @throws IOException if the file cannot be opened.
+     */
+    public Capture(final Channel<? super M> delegate,
+                   final Codec<M> codec,
+                   final Path path) throws IOException {
+        checkNotNull(delegate, "delegate");
+        checkNotNull(codec, "codec");
+        checkNotNull(path, "path");
+
+        mDelegate = delegate;
+        mCodec = codec;
+        mFile = FileChannel.open(path,
+                                 StandardOpenOption.CREATE,
+                                 StandardOpenOption.WRITE,
+                                 StandardOpenOption.TRUNCATE_EXISTING);
+        mBuffer.putInt(MAGIC);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The message is recorded only if it is passed on successfully.
+     */
+    @Override
+    public boolean send(final M message) {
+        synchronized (mLock) {
+            final long time = java.lang.System.nanoTime() - mStart;
+            if (!mDelegate.send(message)) {
+                return false;
+            }
+            if (mCapturing) {
+                try {
+                    record(time, mCodec.encode(message));
+                } catch (final IOException e) {
+                    fail(e);
+                }
+            }
+            return true;
+        }
+    }
+
+    /** Writes the remaining messages into the log, closes it and stops the delegate. */
+    @Override
+    public void stop() {
+        synchronized (mLock) {
+            if (mCapturing) {
+                try {
+                    write();
+                    mFile.close();
+                } catch (final IOException e) {
+                    fail(e);
+                }
+                mCapturing = false;
+            }
+        }
+        mDelegate.stop();
+    }
+
+    /** Writes all recorded messages that are still buffered into the log. */
+    public void flush() {
+        synchronized (mLock) {
+            if (mCapturing) {
+                try {
+                    write();
+                } catch (final IOException e) {
+                    fail(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the failure that stopped the capture.
+     *
+     * @return the failure, or {@code null} if capture has not failed.
+     */
+    @Nullable
+    public IOException getFailure() {
+        synchronized (mLock) {
+            return mFailure;
+        }
+    }
+
+    @GuardedBy("mLock")
+    private void record(final long time, final ByteBuffer encoded) throws IOException {
+        final int length = encoded.remaining();
+        if (mBuffer.remaining() < (RECORD_HEADER + length)) {
+            write();
+        }
+
+        if (mBuffer.remaining() < (RECORD_HEADER + length)) {
+            // the message does not fit into the buffer at all
+            mBuffer.putLong(time).putInt(length);
+            write();
+            while (encoded.hasRemaining()) {
+                mFile.write(encoded);
+            }
+        } else {
+            mBuffer.putLong(time).putInt(length).put(encoded);
+        }
+    }
+
+    @GuardedBy("mLock")
+    private void write() throws IOException {
+        mBuffer.flip();
+        try {
+            while (mBuffer.hasRemaining()) {
+                mFile.write(mBuffer);
+            }
+        } finally {
+            mBuffer.clear();
+        }
+    }
+
+    @GuardedBy("mLock")
+    private void fail(final IOException failure) {
+        mCapturing = false;
+        mFailure = failure;
+        try {
+            mFile.close();
+        } catch (final IOException ignored) {
+            // capture has already failed
+        }
+    }
+
+    /**
+     * Reads the messages recorded by a {@link Capture}, one at a time.
+     *
+     * @param <M> the type of recorded messages.
+     */
+    public static final class Reader<M> implements Closeable {
+
+        private final Codec<M> mCodec;
+        private final FileChannel mFile;
+        private ByteBuffer mBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        private long mTime;
+        @Nullable
+        private M mMessage;
+
+        /**
+         * Opens the given log.
+         *
+         * @param path  the file into which messages were recorded.
+         * @param codec the {@link Codec} that decodes messages.
+         *
+         * @throws IOException if the file cannot be opened or is not a log.
+         */
+        public Reader(final Path path, final Codec<M> codec)
+                throws IOException {
+            checkNotNull(path, "path");
+            checkNotNull(codec, "codec");
+
+            mCodec = codec;
+            mFile = FileChannel.open(path, StandardOpenOption.READ);
+            mBuffer.flip();
+            try {
+                if (!fill(Integer.BYTES) || (mBuffer.getInt() != MAGIC)) {
+                    throw new IOException(path + " is not a capture log");
+                }
+            } catch (final IOException e) {
+                mFile.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Reads the next message.
+         *
+         * @return {@code true} if a message was read, or {@code false} if the end of the log was
+         * reached.
+         *
+         * @throws IOException if the log cannot be read.
+         */
+        public boolean next() throws IOException {
+            if (!fill(RECORD_HEADER)) {
+                return false;
+            }
+            mTime = mBuffer.getLong();
+            final int length = mBuffer.getInt();
+            if (!fill(length)) {
+                throw new EOFException("truncated record");
+            }
+
+            final ByteBuffer encoded = mBuffer.slice();
+            encoded.limit(length);
+            mBuffer.position(mBuffer.position() + length);
+            mMessage = mCodec.decode(encoded);
+            return true;
+        }
+
+        /**
+         * Returns the time at which the last read message was sent, relative to the start of the
+         * capture.
+         *
+         * @param unit the unit of the returned time.
+         *
+         * @return the time of the message.
+         */
+        public long getTime(final TimeUnit unit) {
+            return unit.convert(mTime, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Returns the last read message.
+         *
+         * @return the message.
+         */
+        @Nullable
+        public M getMessage() {
+            return mMessage;
+        }
+
+        @Override
+        public void close() throws IOException {
+            mFile.close();
+        }
+
+        /**
+         * Ensures that the buffer has at least the given number of remaining bytes.
+         *
+         * @return {@code false} if the end of the log was reached before any byte was read.
+         */
+        private boolean fill(final int bytes) throws IOException {
+            if (mBuffer.remaining() >= bytes) {
+                return true;
+            }
+            if (mBuffer.capacity() < bytes) {
+                final ByteBuffer larger = ByteBuffer.allocateDirect(bytes);
+                larger.put(mBuffer);
+                larger.flip();
+                mBuffer = larger;
+            }
+
+            final boolean empty = !mBuffer.hasRemaining();
+            mBuffer.compact();
+            while (mBuffer.position() < bytes) {
+                if (mFile.read(mBuffer) < 0) {
+                    mBuffer.flip();
+                    if (empty && !mBuffer.hasRemaining()) {
+                        return false;
+                    }
+                    throw new EOFException("truncated record");
+                }
+            }
+            mBuffer.flip();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,335 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor;
+
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import static simple.actor.Checks.checkNotNull;
+
+/**
+ * Operators that transform, filter and route messages on the sender's thread.
+ *
+ * <p>Unlike an intermediate {@link Actor} registered only to transform messages, the operators do
+ * not enqueue messages or hand them to another thread: a message sent to the returned {@link
+ * Channel} passes through every operator in the sender's call and is enqueued once, by the last
+ * {@code Channel}. For example, the following channel parses, validates and routes a message with a
+ * single enqueue to either {@code orders} or {@code rejected}:
+ *
+ * <pre>{@code
+ * Channel<String> input = Channels.<String>pipe()
+ *         .map(Order::parse)
+ *         .filter(Order::isValid)
+ *         .partition(Order::isUrgent, rejected)
+ *         .to(orders);
+ * }</pre>
+ *
+ * <p>Stopping a returned {@code Channel} stops all {@code Channels} it sends to, and any later
+ * send returns {@code false} without invoking the operators. The returned {@code Channel} is also
+ * stopped as soon as any {@code Channel} it sends to reports that it has been stopped: that send
+ * returns {@code false}, and so do all later sends, without invoking the operators. Until then, a
+ * message dropped by a filter is reported as sent.
+ */
+public final class Channels {
+
+    /**
+     * Starts a pipeline of operators for messages of the given type.
+     *
+     * @param <M> the type of messages sent to the pipeline.
+     *
+     * @return the empty pipeline.
+     */
+    public static <M> Pipe<M, M> pipe() {
+        return new Pipe<>(channel -> channel);
+    }
+
+    /**
+     * Returns a {@link Channel} that transforms messages with the given function before sending
+     * them to the given {@code Channel}.
+     *
+     * @param channel  the {@code Channel} that receives transformed messages.
+     * @param function the function that transforms messages.
+     * @param <M>      the type of messages sent to the returned {@code Channel}.
+     * @param <N>      the type of transformed messages.
+     *
+     * @return the transforming {@code Channel}.
+     */
+    public static <M, N> Channel<M> contramap(
+            final Channel<? super N> channel,
+            final Function<? super M, ? extends N> function) {
+        return Channels.<M>pipe().map(function).to(channel);
+    }
+
+    /**
+     * Returns a {@link Channel} that sends only messages matching the given predicate to the given
+     * {@code Channel}.
+     *
+     * @param channel   the {@code Channel} that receives matching messages.
+     * @param predicate the predicate that messages have to match.
+     * @param <M>       the type of messages.
+     *
+     * @return the filtering {@code Channel}.
+     */
+    public static <M> Channel<M> filter(final Channel<? super M> channel,
+                                        final Predicate<? super M> predicate) {
+        return Channels.<M>pipe().filter(predicate).to(channel);
+    }
+
+    /**
+     * Returns a {@link Channel} that sends messages matching the given predicate to one {@code
+     * Channel} and all other messages to the other.
+     *
+     * @param predicate the predicate that decides where messages are sent.
+     * @param matching  the {@code Channel} that receives matching messages.
+     * @param rest      the {@code Channel} that receives all other messages.
+     * @param <M>       the type of messages.
+     *
+     * @return the partitioning {@code Channel}.
+     */
+    public static <M> Channel<M> partition(final Predicate<? super M> predicate,
+                                           final Channel<? super M> matching,
+                                           final Channel<? super M> rest) {
+        return Channels.<M>pipe().partition(predicate, rest).to(matching);
+    }
+
+    /**
+     * Returns a {@link Channel} that sends every message to both given {@code Channels}.
+     *
+     * <p>The returned {@code Channel} is stopped as soon as either of the given {@code Channels}
+     * is: the send that finds a stopped {@code Channel} returns {@code false}, and so do all later
+     * sends, without sending to either {@code Channel}.
+     *
+     * @param first  the first {@code Channel}.
+     * @param second the second {@code Channel}.
+     * @param <M>    the type of messages.
+     *
+     * @return the duplicating {@code Channel}.
+     */
+    public static <M> Channel<M> tee(final Channel<? super M> first,
+                                     final Channel<? super M> second) {
+        return Channels.<M>pipe().tee(second).to(first);
+    }
+
+    /**
+     * A pipeline of operators. Every operator returns a new pipeline, leaving the original one
+     * unchanged, and {@link #to(Channel)} connects the pipeline to the final {@link Channel}.
+     *
+     * @param <I> the type of messages sent to the pipeline.
+     * @param <O> the type of messages that come out of the pipeline.
+     */
+    public static final class Pipe<I, O> {
+
+        private final Function<Channel<? super O>, Channel<? super I>> mConnect;
+
+        Pipe(final Function<Channel<? super O>, Channel<? super I>> connect) {
+            mConnect = connect;
+        }
+
+        /**
+         * Appends an operator that transforms messages with the given function.
+         *
+         * @param function the function that transforms messages.
+         * @param <N>      the type of transformed messages.
+         *
+         * @return the extended pipeline.
+         */
+        public <N> Pipe<I, N> map(final Function<? super O, ? extends N> function) {
+            checkNotNull(function, "function");
+            return new Pipe<>(channel -> mConnect.apply(new Transform<>(function, channel)));
+        }
+
+        /**
+         * Appends an operator that passes on only messages matching the given predicate.
+         *
+         * @param predicate the predicate that messages have to match.
+         *
+         * @return the extended pipeline.
+         */
+        public Pipe<I, O> filter(final Predicate<? super O> predicate) {
+            checkNotNull(predicate, "predicate");
+            return new Pipe<>(channel -> mConnect.apply(new Filter<>(predicate, channel)));
+        }
+
+        /**
+         * Appends an operator that passes on messages matching the given predicate and sends all
+         * other messages to the given {@link Channel}.
+         *
+         * @param predicate the predicate that decides where messages are sent.
+         * @param rest      the {@code Channel} that receives messages not matching the predicate.
+         *
+         * @return the extended pipeline.
+         */
+        public Pipe<I, O> partition(final Predicate<? super O> predicate,
+                                    final Channel<? super O> rest) {
+            checkNotNull(predicate, "predicate");
+            checkNotNull(rest, "rest");
+            return new Pipe<>(channel -> mConnect.apply(new Partition<>(predicate, channel, rest)));
+        }
+
+        /**
+         * Appends an operator that also sends every message to the given {@link Channel}. The
+         * operator is stopped as soon as either the given {@code Channel} or the rest of the
+         * pipeline is, like the {@code Channel} returned by {@link Channels#tee tee}.
+         *
+         * @param other the {@code Channel} that receives a copy of every message.
+         *
+         * @return the extended pipeline.
+         */
+        public Pipe<I, O> tee(final Channel<? super O> other) {
+            checkNotNull(other, "other");
+            return new Pipe<>(channel -> mConnect.apply(new Tee<>(channel, other)));
+        }
+
+        /**
+         * Connects the pipeline to the given {@link Channel}.
+         *
+         * @param channel the {@code Channel} that receives messages coming out of the pipeline.
+         *
+         * @return the {@code Channel} that sends messages through the pipeline.
+         */
+        public Channel<I> to(final Channel<? super O> channel) {
+            checkNotNull(channel, "channel");
+            return new Head<>(mConnect.apply(channel));
+        }
+    }
+
+    private Channels() {}
+
+    private static final class Head<M> implements Channel<M> {
+
+        private final Channel<? super M> mNext;
+
+        private volatile boolean mStopped = false;
+
+        Head(final Channel<? super M> next) {
+            mNext = next;
+        }
+
+        @Override
+        public boolean send(final M message) {
+            if (mStopped) {
+                return false;
+            }
+            if (mNext.send(message)) {
+                return true;
+            }
+            mStopped = true;
+            return false;
+        }
+
+        @Override
+        public void stop() {
+            if (!mStopped) {
+                mStopped = true;
+                mNext.stop();
+            }
+        }
+    }
+
+    private static final class Transform<M, N> implements Channel<M> {
+
+        private final Function<? super M, ? extends N> mFunction;
+        private final Channel<? super N> mNext;
+
+        Transform(final Function<? super M, ? extends N> function,
+                  final Channel<? super N> next) {
+            mFunction = function;
+            mNext = next;
+        }
+
+        @Override
+        public boolean send(final M message) {
+            return mNext.send(mFunction.apply(message));
+        }
+
+        @Override
+        public void stop() {
+            mNext.stop();
+        }
+    }
+
+    private static final class Filter<M> implements Channel<M> {
+
+        private final Predicate<? super M> mPredicate;
+        private final Channel<? super M> mNext;
+
+        Filter(final Predicate<? super M> predicate,
+               final Channel<? super M> next) {
+            mPredicate = predicate;
+            mNext = next;
+        }
+
+        @Override
+        public boolean send(final M message) {
+            return !mPredicate.test(message) || mNext.send(message);
+        }
+
+        @Override
+        public void stop() {
+            mNext.stop();
+        }
+    }
+
+    private static final class Partition<M> implements Channel<M> {
+
+        private final Predicate<? super M> mPredicate;
+        private final Channel<? super M> mMatching;
+        private final Channel<? super M> mRest;
+
+        Partition(final Predicate<? super M> predicate,
+                  final Channel<? super M> matching,
+                  final Channel<? super M> rest) {
+            mPredicate = predicate;
+            mMatching = matching;
+            mRest = rest;
+        }
+
+        @Override
+        public boolean send(final M message) {
+            return mPredicate.test(message) ? mMatching.send(message) : mRest.send(message);
+        }
+
+        @Override
+        public void stop() {
+            mMatching.stop();
+            mRest.stop();
+        }
+    }
+
+    private static final class Tee<M> implements Channel<M> {
+
+        private final Channel<? super M> mFirst;
+        private final Channel<? super M> mSecond;
+
+        Tee(final Channel<? super M> first, final Channel<? super M> second) {
+            mFirst = first;
+            mSecond = second;
+        }
+
+        @Override
+        public boolean send(final M message) {
+            // both channels have to receive the message, so no short-circuiting
+            return mFirst.send(message) & mSecond.send(message);
+        }
+
+        @Override
+        public void stop() {
+            mFirst.stop();
+            mSecond.stop();
+        }
+    }
+}
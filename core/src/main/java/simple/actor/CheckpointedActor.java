@@ -0,0 +1,36 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor;
+
+/**
+ * Base class for {@link Actor Actors} whose state can be included in a consistent snapshot taken
+ * by {@link Checkpoints}.
+ *
+ * @param <M> the type of received messages.
+ * @param <S> the type of actor's state.
+ */
+public abstract class CheckpointedActor<M, S> extends Actor<M> {
+
+    /**
+     * Returns a snapshot of the current state of the actor. This method is called after the actor
+     * has received all messages sent before the checkpoint and none sent after it.
+     *
+     * <p>The actor keeps receiving messages right after this method returns, so the returned
+     * snapshot must not change afterwards; it should be either immutable or a copy of the state.
+     */
+    protected abstract S getSnapshot();
+}
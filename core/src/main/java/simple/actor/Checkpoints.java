@@ -0,0 +1,427 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor;
+
+import net.jcip.annotations.GuardedBy;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static simple.actor.Checks.checkNotNull;
+
+/**
+ * Takes consistent snapshots of a graph of {@link CheckpointedActor CheckpointedActors} without
+ * pausing the {@link System}.
+ *
+ * <p>Actors are {@link #register registered} as nodes of the graph, and the edges are the {@link
+ * Node#input inputs} of nodes: every input is a {@link Channel} that is either handed to another
+ * registered actor as one of its outputs or used by an outside source. A {@link #checkpoint
+ * checkpoint} sends a barrier through every source input. When a node has received the barrier on
+ * one input, it holds back further messages from that input until the barrier has arrived on all
+ * of its inputs. At that point the node has received exactly the messages sent before the
+ * checkpoint, so its actor is asked for a {@link CheckpointedActor#getSnapshot snapshot}, the
+ * barrier is forwarded to all of the node's outputs and the held back messages are delivered.
+ * Once every node has taken its snapshot, the returned future completes with all of them.
+ *
+ * <p>Only nodes whose inputs are still waiting for a barrier ever hold back messages; all other
+ * actors keep receiving messages while the checkpoint is in progress.
+ *
+ * <p>If a node is stopped before it has taken its snapshot, the checkpoint in progress completes
+ * exceptionally with an {@link IllegalStateException}. The stopped node is removed from the graph
+ * and later checkpoints send their barriers directly to the nodes it was sending messages to.
+ *
+ * <p>The graph must be fully built before the first checkpoint is taken. Actors have to send
+ * messages downstream only through the {@code Channels} given to them as outputs, so that the
+ * barriers follow the messages.
+ */
+public final class Checkpoints {
+
+    private final Object mLock = new Object();
+
+    private final Context mContext;
+
+    @GuardedBy("mLock")
+    private final List<Node<?, ?>> mNodes = new ArrayList<>();
+    @GuardedBy("mLock")
+    private final List<Link<?>> mInputs = new ArrayList<>();
+    @GuardedBy("mLock")
+    private long mNextId = 0;
+    /** Set only while holding {@code mLock}, but cleared by the last reporting node. */
+    private final AtomicReference<Pending> mPending = new AtomicReference<>();
+
+    /**
+     * Creates a coordinator that will register actors with the given {@link Context}.
+     *
+     * @param context the {@code Context} with which the actors will be registered.
+     */
+    public Checkpoints(final Context context) {
+        checkNotNull(context, "context");
+        mContext = context;
+    }
+
+    /**
+     * Registers the given {@link CheckpointedActor} as a node of the graph. The given outputs are
+     * the inputs of other nodes to which the actor sends messages; a barrier received by this node
+     * is forwarded to all of them.
+     *
+     * @param actor   the actor that should be registered.
+     * @param outputs the inputs of other nodes to which the actor sends messages.
+     * @param <M>     the type of messages that actor receives.
+     * @param <S>     the type of actor's state.
+     *
+     * @return the node of the registered actor.
+     */
+    public <M, S> Node<M, S> register(final CheckpointedActor<M, S> actor,
+                                      final Channel<?>... outputs) {
+        checkNotNull(actor, "actor");
+
+        final List<Link<?>> links = new ArrayList<>(outputs.length);
+        synchronized (mLock) {
+            for (final Channel<?> output : outputs) {
+                if (!(output instanceof Link) || (((Link<?>) output).mNode.mOwner != this)) {
+                    throw new IllegalArgumentException("output is not an input of this graph");
+                }
+                final Link<?> link = (Link<?>) output;
+                if (link.mOutput) {
+                    throw new IllegalArgumentException("output is already used by another node");
+                }
+                link.mOutput = true;
+                links.add(link);
+            }
+
+            final Node<M, S> node = new Node<>(this, links);
+            mNodes.add(node);
+            node.mChannel = mContext.register(new Aligned<>(node, actor));
+            return node;
+        }
+    }
+
+    /**
+     * Starts a checkpoint. If a checkpoint is already in progress, no new checkpoint is started.
+     *
+     * @return the future that completes with the snapshot of all nodes when the checkpoint, or the
+     * one already in progress, is done.
+     */
+    public CompletableFuture<Snapshot> checkpoint() {
+        final Pending pending;
+        final List<Link<?>> sources = new ArrayList<>();
+        final List<Node<?, ?>> roots = new ArrayList<>();
+        synchronized (mLock) {
+            final Pending current = mPending.get();
+            if (current != null) {
+                return current.mFuture;
+            }
+
+            pending = new Pending(mNextId++, mNodes.size());
+            if (mNodes.isEmpty()) {
+                pending.mFuture.complete(new Snapshot(pending.mId, pending.mStates));
+                return pending.mFuture;
+            }
+            mPending.set(pending);
+            for (final Link<?> input : mInputs) {
+                if (!input.mOutput) {
+                    sources.add(input);
+                }
+            }
+            for (final Node<?, ?> node : mNodes) {
+                if (node.mInputs == 0) {
+                    roots.add(node);
+                }
+            }
+        }
+
+        for (final Link<?> source : sources) {
+            source.barrier(pending.mId);
+        }
+        for (final Node<?, ?> root : roots) {
+            root.barrier(pending.mId);
+        }
+        return pending.mFuture;
+    }
+
+    /**
+     * Adds the state of the given node to the given checkpoint. This is called while the node's
+     * actor receives a barrier, so it never waits for the lock.
+     */
+    private void report(final long id, final Node<?, ?> node, final Object state) {
+        final Pending pending = mPending.get();
+        if ((pending == null) || (pending.mId != id)) {
+            return;
+        }
+
+        pending.mStates.put(node, (state == null) ? Snapshot.NULL : state);
+        if ((pending.mRemaining.decrementAndGet() == 0) && mPending.compareAndSet(pending, null)) {
+            pending.mFuture.complete(new Snapshot(id, pending.mStates));
+        }
+    }
+
+    /**
+     * Removes the given stopped node from the graph. If the checkpoint in progress is still
+     * waiting for the node's state, the checkpoint fails.
+     */
+    private void stopped(final Node<?, ?> node) {
+        final Pending pending;
+        synchronized (mLock) {
+            mNodes.remove(node);
+            mInputs.removeIf(input -> input.mNode == node);
+            // barriers of later checkpoints go directly to the nodes this node was sending to
+            for (final Link<?> output : node.mOutputs) {
+                output.mOutput = false;
+            }
+
+            pending = mPending.get();
+            if ((pending == null) || pending.mStates.containsKey(node)
+                    || !mPending.compareAndSet(pending, null)) {
+                return;
+            }
+        }
+
+        pending.mFuture.completeExceptionally(
+                new IllegalStateException("node stopped during checkpoint " + pending.mId));
+    }
+
+    /**
+     * A registered {@link CheckpointedActor}.
+     *
+     * @param <M> the type of messages that actor receives.
+     * @param <S> the type of actor's state.
+     */
+    public static final class Node<M, S> {
+
+        final Checkpoints mOwner;
+        final List<Link<?>> mOutputs;
+
+        /** Written only while holding the owner's lock. */
+        volatile int mInputs = 0;
+
+        /** Set once, under the owner's lock, right after the node is created. */
+        volatile Channel<Flow<M>> mChannel;
+
+        Node(final Checkpoints owner, final List<Link<?>> outputs) {
+            mOwner = owner;
+            mOutputs = outputs;
+        }
+
+        /**
+         * Creates a new input of the node. The returned {@link Channel} should either be given to
+         * exactly one other node as an output or be used by an outside source of messages.
+         *
+         * @return the {@code Channel} to send messages to the actor.
+         */
+        public Channel<M> input() {
+            synchronized (mOwner.mLock) {
+                final Link<M> link = new Link<>(this, mInputs++);
+                mOwner.mInputs.add(link);
+                return link;
+            }
+        }
+
+        /** Stops the actor. */
+        public void stop() {
+            mChannel.stop();
+        }
+
+        private void barrier(final long id) {
+            mChannel.send(new Flow<>(0 /*input*/, null, true /*barrier*/, id));
+        }
+    }
+
+    /** The states of all nodes, taken by a single checkpoint. */
+    public static final class Snapshot {
+
+        /** Stands for a {@code null} state, since states are collected in a concurrent map. */
+        static final Object NULL = new Object();
+
+        private final long mId;
+        private final Map<Node<?, ?>, Object> mStates;
+
+        Snapshot(final long id, final Map<Node<?, ?>, Object> states) {
+            mId = id;
+            mStates = Collections.unmodifiableMap(states);
+        }
+
+        /**
+         * Returns the identifier of the checkpoint. Checkpoints are numbered from zero.
+         *
+         * @return the identifier of the checkpoint.
+         */
+        public long getId() {
+            return mId;
+        }
+
+        /**
+         * Returns the state of the given node.
+         *
+         * @param node the node.
+         * @param <S>  the type of node's state.
+         *
+         * @return the state of the node.
+         */
+        @SuppressWarnings("unchecked")
+        public <S> S get(final Node<?, S> node) {
+            final Object state = mStates.get(node);
+            if (state == null) {
+                throw new IllegalArgumentException("node is not part of the snapshot");
+            }
+            return (state == NULL) ? null : (S) state;
+        }
+    }
+
+    private static final class Pending {
+
+        final long mId;
+        final AtomicInteger mRemaining;
+        /** Nodes use identity equality, so a concurrent map keyed by them is an identity map. */
+        final Map<Node<?, ?>, Object> mStates = new ConcurrentHashMap<>();
+        final CompletableFuture<Snapshot> mFuture = new CompletableFuture<>();
+
+        Pending(final long id, final int expected) {
+            mId = id;
+            mRemaining = new AtomicInteger(expected);
+        }
+    }
+
+    /** A message or a barrier received on one of the inputs of a node. */
+    private static final class Flow<M> {
+
+        final int mInput;
+        @Nullable
+        final M mMessage;
+        final boolean mBarrier;
+        final long mId;
+
+        Flow(final int input, @Nullable final M message, final boolean barrier, final long id) {
+            mInput = input;
+            mMessage = message;
+            mBarrier = barrier;
+            mId = id;
+        }
+    }
+
+    /** An input of a node. */
+    private static final class Link<M> implements Channel<M> {
+
+        final Node<M, ?> mNode;
+        final int mInput;
+
+        /** Guarded by the owner's lock. */
+        boolean mOutput = false;
+
+        Link(final Node<M, ?> node, final int input) {
+            mNode = node;
+            mInput = input;
+        }
+
+        @Override
+        public boolean send(final M message) {
+            return mNode.mChannel.send(new Flow<>(mInput, message, false /*message*/, 0));
+        }
+
+        @Override
+        public void stop() {
+            mNode.stop();
+        }
+
+        void barrier(final long id) {
+            mNode.mChannel.send(new Flow<>(mInput, null, true /*barrier*/, id));
+        }
+    }
+
+    /** Delivers messages to the actor, aligning barriers from all inputs of its node. */
+    private static final class Aligned<M, S> extends Actor<Flow<M>> {
+
+        private final Node<M, S> mNode;
+        private final CheckpointedActor<M, S> mActor;
+
+        private final Queue<Flow<M>> mHeld = new ArrayDeque<>();
+        @Nullable
+        private boolean[] mBlocked;
+        private int mBarriers = 0;
+
+        Aligned(final Node<M, S> node, final CheckpointedActor<M, S> actor) {
+            mNode = node;
+            mActor = actor;
+        }
+
+        @Override
+        protected void onStart(final Channel<Flow<M>> self, final Context context) {
+            mActor.onStart(new Channel<M>() {
+                @Override
+                public boolean send(final M message) {
+                    // messages sent to itself are never held back, since they don't cross the cut
+                    return self.send(new Flow<>(-1 /*self*/, message, false /*message*/, 0));
+                }
+
+                @Override
+                public void stop() {
+                    self.stop();
+                }
+            }, context);
+        }
+
+        @Override
+        protected void onMessage(final Flow<M> flow) {
+            if ((mBlocked != null) && (flow.mInput >= 0) && mBlocked[flow.mInput]) {
+                mHeld.add(flow);
+            } else if (flow.mBarrier) {
+                onBarrier(flow);
+            } else {
+                mActor.onMessage(flow.mMessage);
+            }
+        }
+
+        @Override
+        protected void onStop() {
+            mNode.mOwner.stopped(mNode);
+            mActor.onStop();
+        }
+
+        private void onBarrier(final Flow<M> flow) {
+            final int inputs = Math.max(mNode.mInputs, 1);
+            if ((mBlocked == null) || (mBlocked.length != inputs)) {
+                mBlocked = new boolean[inputs];
+            }
+            mBlocked[flow.mInput] = true;
+            mBarriers++;
+            if (mBarriers < inputs) {
+                return;
+            }
+
+            mNode.mOwner.report(flow.mId, mNode, mActor.getSnapshot());
+            for (final Link<?> output : mNode.mOutputs) {
+                output.barrier(flow.mId);
+            }
+
+            Arrays.fill(mBlocked, false);
+            mBarriers = 0;
+            for (int i = mHeld.size(); i > 0; i--) {
+                onMessage(mHeld.remove());
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Common interface for converting values to and from their binary representation.
+ *
+ * @param <T> the type of converted values.
+ */
+public interface Codec<T> {
+
+    /**
+     * Converts the given value to its binary representation.
+     *
+     * @param value the value to be converted.
+     *
+     * @return a {@link ByteBuffer} whose remaining bytes are the binary representation of the
+     * value.
+     */
+    ByteBuffer encode(T value);
+
+    /**
+     * Converts the given binary representation back to a value.
+     *
+     * @param buffer a {@link ByteBuffer} whose remaining bytes are the binary representation of the
+     *               value.
+     *
+     * @return the value.
+     */
+    T decode(ByteBuffer buffer);
+}
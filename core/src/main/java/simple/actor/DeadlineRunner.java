@@ -0,0 +1,174 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link Runner} that executes {@link Runnable Runnables} on a fixed number of threads using
+ * earliest-deadline-first scheduling.
+ *
+ * <p>Every {@link Channel} created by the runner has a latency: the time in which a sent {@code
+ * Runnable} should be executed. When a {@code Channel} has {@code Runnables} to execute, it is
+ * placed in a priority queue with a deadline equal to the current time plus its latency, and the
+ * threads always pick the {@code Channel} with the earliest deadline. After executing a single
+ * {@code Runnable}, the {@code Channel} is placed back in the queue with a new deadline, so
+ * latency-sensitive channels overtake background channels without ever starving them.
+ *
+ * <p>{@code Runnables} sent to the same {@code Channel} are executed one at a time, in the same
+ * order they were sent.
+ */
+public final class DeadlineRunner implements Runner {
+
+    private final long mLatency;
+
+    private final BlockingQueue<Deadline> mQueue = new PriorityBlockingQueue<>();
+    private final AtomicLong mSequence = new AtomicLong(0 /*initial value*/);
+    private final List<Thread> mThreads;
+
+    /**
+     * Creates a runner that will use given number of threads and given default latency.
+     *
+     * @param threads the number of threads.
+     * @param latency the latency of {@link Channel Channels} created by {@link #create()}.
+     * @param unit    the unit of the latency.
+     */
+    public DeadlineRunner(final int threads, final long latency, final TimeUnit unit) {
+        this(threads, latency, unit, Executors.defaultThreadFactory());
+    }
+
+    /**
+     * Creates a runner that will use given number of threads created by the given {@link
+     * ThreadFactory} and given default latency.
+     *
+     * @param threads the number of threads.
+     * @param latency the latency of {@link Channel Channels} created by {@link #create()}.
+     * @param unit    the unit of the latency.
+     * @param factory the {@code ThreadFactory} that creates threads.
+     */
+    public DeadlineRunner(final int threads,
+                          final long latency,
+                          final TimeUnit unit,
+                          final ThreadFactory factory) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive");
+        }
+
+        mLatency = unit.toNanos(latency);
+        mThreads = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            final Thread thread = factory.newThread(this::work);
+            mThreads.add(thread);
+            thread.start();
+        }
+    }
+
+    /** Creates a {@link Channel} with the default latency. */
+    @Override
+    public Channel<Runnable> create() {
+        return new DeadlineChannel(mLatency);
+    }
+
+    /**
+     * Creates a {@link Channel} with the given latency.
+     *
+     * @param latency the time in which sent {@link Runnable Runnables} should be executed.
+     * @param unit    the unit of the latency.
+     */
+    public Channel<Runnable> create(final long latency, final TimeUnit unit) {
+        return new DeadlineChannel(unit.toNanos(latency));
+    }
+
+    /**
+     * Stops all threads of the runner. {@link Runnable Runnables} that have not been executed yet
+     * will never be executed.
+     */
+    public void shutdown() {
+        for (final Thread thread : mThreads) {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * Executes the {@link Channel Channels} with the earliest deadline until interrupted.
+     * Exceptions thrown by {@link Runnable Runnables} are {@link Uncaught#report reported} and the
+     * thread continues with the next {@code Channel}.
+     */
+    private void work() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                final SerialChannel channel = mQueue.take().mChannel;
+                try {
+                    channel.run();
+                } catch (final RuntimeException e) {
+                    Uncaught.report(e);
+                }
+            }
+        } catch (final InterruptedException ignored) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** A {@link SerialChannel} that is scheduled by its deadline. */
+    private final class DeadlineChannel extends SerialChannel {
+
+        private final long mLatency;
+
+        DeadlineChannel(final long latency) {
+            super(1 /*batch*/);
+            mLatency = latency;
+        }
+
+        @Override
+        protected boolean schedule() {
+            final long deadline = java.lang.System.nanoTime() + mLatency;
+            return mQueue.add(new Deadline(deadline, mSequence.getAndIncrement(), this));
+        }
+    }
+
+    /**
+     * An entry in the priority queue. Entries are ordered by their deadline and, for equal
+     * deadlines, by the order they were created.
+     */
+    private static final class Deadline implements Comparable<Deadline> {
+
+        private final long mDeadline;
+        private final long mSequence;
+        final SerialChannel mChannel;
+
+        Deadline(final long deadline, final long sequence, final SerialChannel channel) {
+            mDeadline = deadline;
+            mSequence = sequence;
+            mChannel = channel;
+        }
+
+        @Override
+        public int compareTo(final Deadline other) {
+            final long difference = mDeadline - other.mDeadline;
+            return (difference == 0)
+                    ? Long.compare(mSequence, other.mSequence)
+                    : ((difference < 0) ? -1 : 1);
+        }
+    }
+}
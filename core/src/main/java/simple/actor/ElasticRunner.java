@@ -0,0 +1,332 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link Runner} that executes {@link Runnable Runnables} on a pool of threads that grows and
+ * shrinks with the load.
+ *
+ * <p>{@link Channel Channels} that have {@code Runnables} to execute wait in a shared queue for a
+ * free thread. When no thread is idle, the pool grows up to its maximum size if either the number
+ * of waiting {@code Channels} exceeds the number of threads or the oldest waiting {@code Channel}
+ * has waited longer than the target latency. Threads above the core size are retired after being
+ * idle for the keep-alive time.
+ *
+ * <p>{@code Runnables} sent to the same {@code Channel} are executed one at a time, in the same
+ * order they were sent, and a {@code Channel} occupies at most one thread at a time.
+ *
+ * <p>All sizing decisions are exposed through {@link #getPoolSize}, {@link #getStartedCount},
+ * {@link #getRetiredCount}, {@link #getBacklog} and {@link #getQueueWait}.
+ *
+ * <p>The runner can be used as a {@link Watchdog.Compensator}: for every {@link #compensate
+ * compensated} stalled thread, the maximum size is raised by one and a new thread is started,
+ * until the stalled thread is {@link #release released}.
+ */
+public final class ElasticRunner implements Runner, Watchdog.Compensator {
+
+    private static final int BATCH = 64;
+
+    private final int mCore;
+    private final int mMax;
+    private final long mKeepAlive;
+    private final long mLatency;
+    private final ThreadFactory mFactory;
+
+    private final BlockingQueue<Waiting> mQueue = new LinkedBlockingQueue<>();
+    private final AtomicInteger mThreads = new AtomicInteger(0 /*initial value*/);
+    private final AtomicInteger mIdle = new AtomicInteger(0 /*initial value*/);
+    private final AtomicInteger mCompensated = new AtomicInteger(0 /*initial value*/);
+    private final AtomicLong mStarted = new AtomicLong(0 /*initial value*/);
+    private final AtomicLong mRetired = new AtomicLong(0 /*initial value*/);
+    private volatile long mQueueWait = 0;
+    private volatile boolean mShutdown = false;
+
+    /**
+     * Creates a runner whose pool of threads will be sized between given core and maximum size.
+     *
+     * @param core      the number of threads that are kept even when idle.
+     * @param max       the maximum number of threads.
+     * @param keepAlive the time after which an idle thread above the core size is retired.
+     * @param latency   the target time that a {@link Channel} should wait for a free thread.
+     * @param unit      the unit of the keep-alive time and latency.
+     */
+    public ElasticRunner(final int core,
+                         final int max,
+                         final long keepAlive,
+                         final long latency,
+                         final TimeUnit unit) {
+        this(core, max, keepAlive, latency, unit, Executors.defaultThreadFactory());
+    }
+
+    /**
+     * Creates a runner whose pool of threads will be sized between given core and maximum size and
+     * created by the given {@link ThreadFactory}.
+     *
+     * @param core      the number of threads that are kept even when idle.
+     * @param max       the maximum number of threads.
+     * @param keepAlive the time after which an idle thread above the core size is retired.
+     * @param latency   the target time that a {@link Channel} should wait for a free thread.
+     * @param unit      the unit of the keep-alive time and latency.
+     * @param factory   the {@code ThreadFactory} that creates threads.
+     */
+    public ElasticRunner(final int core,
+                         final int max,
+                         final long keepAlive,
+                         final long latency,
+                         final TimeUnit unit,
+                         final ThreadFactory factory) {
+        if ((core < 0) || (max < 1) || (max < core)) {
+            throw new IllegalArgumentException("invalid pool size");
+        }
+
+        mCore = core;
+        mMax = max;
+        mKeepAlive = unit.toNanos(keepAlive);
+        mLatency = unit.toNanos(latency);
+        mFactory = factory;
+    }
+
+    @Override
+    public Channel<Runnable> create() {
+        return new ElasticChannel();
+    }
+
+    /**
+     * Raises the maximum size by one and starts a new thread to replace a stalled one. Does nothing
+     * once the runner has been {@link #shutdown shut down}.
+     */
+    @Override
+    public void compensate() {
+        if (mShutdown) {
+            return;
+        }
+
+        mCompensated.incrementAndGet();
+        start();
+    }
+
+    /**
+     * Lowers the maximum size by one once a stalled thread has finished. The extra thread will be
+     * retired after being idle for the keep-alive time.
+     */
+    @Override
+    public void release() {
+        mCompensated.decrementAndGet();
+    }
+
+    /** Returns the number of stalled threads that are currently compensated. */
+    public int getCompensatedCount() {
+        return mCompensated.get();
+    }
+
+    /** Returns the current number of threads. */
+    public int getPoolSize() {
+        return mThreads.get();
+    }
+
+    /** Returns the number of threads that were started since the runner was created. */
+    public long getStartedCount() {
+        return mStarted.get();
+    }
+
+    /** Returns the number of threads that were retired since the runner was created. */
+    public long getRetiredCount() {
+        return mRetired.get();
+    }
+
+    /** Returns the number of {@link Channel Channels} that are waiting for a free thread. */
+    public int getBacklog() {
+        return mShutdown ? 0 : mQueue.size();
+    }
+
+    /** Returns how long the most recently executed {@link Channel} waited for a free thread. */
+    public long getQueueWait(final TimeUnit unit) {
+        return unit.convert(mQueueWait, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stops all threads of the runner once they become idle. {@link Runnable Runnables} that have
+     * not been executed yet will never be executed.
+     */
+    public void shutdown() {
+        mShutdown = true;
+        mQueue.clear();
+        // every thread passes the poison on before stopping, so it also reaches threads that are
+        // started or kept running concurrently with the shutdown
+        mQueue.add(Waiting.POISON);
+    }
+
+    /** Starts a new thread if no thread is idle and the load requires it. */
+    private void growIfNeeded() {
+        if (mIdle.get() > 0) {
+            return;
+        }
+
+        final int threads = mThreads.get();
+        final Waiting oldest = mQueue.peek();
+        final boolean late = (oldest != null)
+                && ((java.lang.System.nanoTime() - oldest.mSince) > mLatency);
+        if ((threads < mCore) || (mQueue.size() > threads) || late) {
+            start();
+        }
+    }
+
+    /** Starts a new thread unless the pool has reached its maximum size. */
+    private void start() {
+        if (reserve()) {
+            mStarted.incrementAndGet();
+            mFactory.newThread(this::work).start();
+        }
+    }
+
+    /**
+     * Counts one more thread in the pool unless it has reached its maximum size.
+     *
+     * @return {@code true} if the thread has been counted; otherwise {@code false}.
+     */
+    private boolean reserve() {
+        int threads;
+        do {
+            threads = mThreads.get();
+            if (threads >= (mMax + mCompensated.get())) {
+                return false;
+            }
+        } while (!mThreads.compareAndSet(threads, threads + 1));
+
+        return true;
+    }
+
+    /**
+     * Tries to retire the calling thread.
+     *
+     * @return {@code true} if the thread should stop; otherwise {@code false}.
+     */
+    private boolean retire() {
+        int threads;
+        do {
+            threads = mThreads.get();
+            if (threads <= mCore) {
+                return false;
+            }
+        } while (!mThreads.compareAndSet(threads, threads - 1));
+
+        // a Channel scheduled while this thread was still counted as idle did not start a new
+        // thread, so this thread keeps running unless the pool has been filled up in the meantime
+        if (!mShutdown && !mQueue.isEmpty() && reserve()) {
+            return false;
+        }
+
+        mRetired.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Executes waiting {@link Channel Channels} until retired or shut down. Exceptions thrown by
+     * {@link Runnable Runnables} are {@link Uncaught#report reported} and the thread continues
+     * with the next waiting {@code Channel}.
+     */
+    private void work() {
+        boolean retired = false;
+        try {
+            while (true) {
+                mIdle.incrementAndGet();
+                final Waiting waiting;
+                try {
+                    waiting = mQueue.poll(mKeepAlive, TimeUnit.NANOSECONDS);
+                } finally {
+                    mIdle.decrementAndGet();
+                }
+
+                if (waiting == null) {
+                    if (retire()) {
+                        retired = true;
+                        return;
+                    }
+                } else if (waiting == Waiting.POISON) {
+                    mQueue.add(Waiting.POISON);
+                    return;
+                } else {
+                    mQueueWait = java.lang.System.nanoTime() - waiting.mSince;
+                    if ((mQueueWait > mLatency) && !mQueue.isEmpty()) {
+                        growIfNeeded();
+                    }
+                    try {
+                        waiting.run();
+                    } catch (final RuntimeException e) {
+                        Uncaught.report(e);
+                    }
+                }
+            }
+        } catch (final InterruptedException ignored) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (!retired) {
+                mThreads.decrementAndGet();
+            }
+        }
+    }
+
+    /** A {@link SerialChannel} that waits in the shared queue for a free thread. */
+    private final class ElasticChannel extends SerialChannel {
+
+        ElasticChannel() {
+            super(BATCH);
+        }
+
+        @Override
+        protected boolean schedule() {
+            if (mShutdown) {
+                return false;
+            }
+
+            mQueue.add(new Waiting(this));
+            growIfNeeded();
+            return true;
+        }
+    }
+
+    /** An entry in the shared queue that remembers since when the {@link Channel} is waiting. */
+    private static final class Waiting implements Runnable {
+
+        static final Waiting POISON = new Waiting(null);
+
+        @Nullable
+        private final Runnable mChannel;
+        final long mSince = java.lang.System.nanoTime();
+
+        Waiting(@Nullable final Runnable channel) {
+            mChannel = channel;
+        }
+
+        @Override
+        public void run() {
+            if (mChannel != null) {
+                mChannel.run();
+            }
+        }
+    }
+}
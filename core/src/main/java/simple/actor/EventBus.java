@@ -0,0 +1,305 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor;
+
+import net.jcip.annotations.GuardedBy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A publish/subscribe bus that delivers published events to all subscribed {@link Channel
+ * Channels}.
+ *
+ * <p>Subscribers subscribe to a topic and a class of events, and receive all events that are
+ * published on the topic and are instances of the class, including instances of its subclasses
+ * and implementations. Events published without a topic are delivered to subscribers that
+ * subscribed without a topic.
+ *
+ * <p>Publishing does not take any locks. For every topic and every published class of events, the
+ * bus keeps a precomputed array of matching subscribers that is replaced (i.e. copied on write)
+ * whenever a subscriber subscribes or unsubscribes; publishing only scans that array.
+ *
+ * <p>A subscription is removed when the {@code Channel} returned by {@link #subscribe subscribe}
+ * is {@link Channel#stop stopped} or when the subscribed {@code Channel} fails to {@link
+ * Channel#send send} an event (i.e. it has been stopped).
+ */
+public final class EventBus {
+
+    /** The key of events published without a topic, which cannot collide with any topic. */
+    private static final Object NO_TOPIC = new Object();
+    private static final Subscription<?>[] NONE = new Subscription<?>[0];
+
+    private final Context mContext;
+
+    private final Object mLock = new Object();
+    private final Map<Object, Topic> mTopics = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Class<?>[]> mHierarchies = new ConcurrentHashMap<>();
+
+    /**
+     * Creates an empty bus.
+     *
+     * @param context the {@link Context} with which subscribed {@link Actor Actors} are registered.
+     */
+    public EventBus(final Context context) {
+        mContext = context;
+    }
+
+    /**
+     * Subscribes the given {@link Channel} to all events of the given class that are published
+     * without a topic.
+     *
+     * @see #subscribe(String, Class, Channel)
+     */
+    public <E> Channel<E> subscribe(final Class<E> type, final Channel<? super E> subscriber) {
+        return subscribeTo(NO_TOPIC, type, subscriber);
+    }
+
+    /**
+     * Subscribes the given {@link Channel} to all events of the given class that are published on
+     * the given topic.
+     *
+     * @param topic      the topic.
+     * @param type       the class of events.
+     * @param subscriber the {@code Channel} that will receive the events.
+     * @param <E>        the type of events.
+     *
+     * @return a {@code Channel} to the subscriber; when stopped, it also removes the subscription.
+     */
+    public <E> Channel<E> subscribe(final String topic,
+                                    final Class<E> type,
+                                    final Channel<? super E> subscriber) {
+        return subscribeTo(topic, type, subscriber);
+    }
+
+    /**
+     * Registers the given {@link Actor} with the {@link Context} and subscribes it to all events of
+     * the given class that are published on the given topic.
+     *
+     * @param topic the topic.
+     * @param type  the class of events.
+     * @param actor the {@code Actor} that will receive the events.
+     * @param <E>   the type of events.
+     *
+     * @return a {@link Channel} to the {@code Actor}; when stopped, it also removes the
+     * subscription.
+     */
+    public <E> Channel<E> register(final String topic,
+                                   final Class<E> type,
+                                   final Actor<E> actor) {
+        return subscribe(topic, type, mContext.register(actor));
+    }
+
+    /**
+     * Publishes the given event without a topic.
+     *
+     * @see #publish(String, Object)
+     */
+    public int publish(final Object event) {
+        return publishTo(NO_TOPIC, event);
+    }
+
+    /**
+     * Publishes the given event on the given topic.
+     *
+     * @param topic the topic.
+     * @param event the event.
+     *
+     * @return the number of subscribers to which the event was sent.
+     */
+    public int publish(final String topic, final Object event) {
+        return publishTo(topic, event);
+    }
+
+    /**
+     * Subscribes the given {@link Channel} to all events of the given class that are published
+     * under the given key, which is either a topic or {@link #NO_TOPIC}.
+     */
+    private <E> Channel<E> subscribeTo(final Object key,
+                                       final Class<E> type,
+                                       final Channel<? super E> subscriber) {
+        final Subscription<E> subscription = new Subscription<>(key, type, subscriber);
+        synchronized (mLock) {
+            mTopics.computeIfAbsent(key, name -> new Topic()).add(subscription);
+        }
+        return subscription;
+    }
+
+    /**
+     * Publishes the given event under the given key, which is either a topic or {@link #NO_TOPIC}.
+     */
+    private int publishTo(final Object key, final Object event) {
+        final Topic subscribers = mTopics.get(key);
+        if (subscribers == null) {
+            return 0;
+        }
+
+        int sent = 0;
+        for (final Subscription<?> subscription : subscribers.get(event.getClass())) {
+            if (subscription.deliver(event)) {
+                sent++;
+            } else {
+                unsubscribe(subscription);
+            }
+        }
+        return sent;
+    }
+
+    /** Removes the given subscription from the bus. */
+    private void unsubscribe(final Subscription<?> subscription) {
+        synchronized (mLock) {
+            final Topic topic = mTopics.get(subscription.mTopic);
+            if ((topic != null) && topic.remove(subscription)) {
+                mTopics.remove(subscription.mTopic);
+            }
+        }
+    }
+
+    /** Returns the given class and all its superclasses and implemented interfaces. */
+    private Class<?>[] hierarchy(final Class<?> type) {
+        return mHierarchies.computeIfAbsent(type, key -> {
+            final Set<Class<?>> hierarchy = new LinkedHashSet<>();
+            final List<Class<?>> pending = new ArrayList<>();
+            pending.add(key);
+            while (!pending.isEmpty()) {
+                final Class<?> current = pending.remove(pending.size() - 1);
+                if (hierarchy.add(current)) {
+                    if (current.getSuperclass() != null) {
+                        pending.add(current.getSuperclass());
+                    }
+                    pending.addAll(Arrays.asList(current.getInterfaces()));
+                }
+            }
+            return hierarchy.toArray(new Class<?>[hierarchy.size()]);
+        });
+    }
+
+    /**
+     * The subscriptions of a single topic, indexed by the class of events they subscribed to and
+     * by the class of published events they match.
+     */
+    private final class Topic {
+
+        @GuardedBy("mLock")
+        private final Map<Class<?>, Subscription<?>[]> mSubscribed = new ConcurrentHashMap<>();
+        private final Map<Class<?>, Subscription<?>[]> mMatching = new ConcurrentHashMap<>();
+
+        /** Returns all subscriptions that match events of the given class. */
+        Subscription<?>[] get(final Class<?> type) {
+            final Subscription<?>[] matching = mMatching.get(type);
+            if (matching != null) {
+                return matching;
+            }
+
+            synchronized (mLock) {
+                return mMatching.computeIfAbsent(type, this::match);
+            }
+        }
+
+        /** Adds the given subscription and updates all precomputed arrays. */
+        @GuardedBy("mLock")
+        void add(final Subscription<?> subscription) {
+            final Subscription<?>[] subscribed = mSubscribed.getOrDefault(subscription.mType, NONE);
+            final Subscription<?>[] updated = Arrays.copyOf(subscribed, subscribed.length + 1);
+            updated[subscribed.length] = subscription;
+            mSubscribed.put(subscription.mType, updated);
+            rematch();
+        }
+
+        /**
+         * Removes the given subscription and updates all precomputed arrays.
+         *
+         * @return {@code true} if the topic has no more subscriptions.
+         */
+        @GuardedBy("mLock")
+        boolean remove(final Subscription<?> subscription) {
+            final Subscription<?>[] subscribed = mSubscribed.get(subscription.mType);
+            if (subscribed != null) {
+                final List<Subscription<?>> updated = new ArrayList<>(Arrays.asList(subscribed));
+                if (updated.remove(subscription)) {
+                    if (updated.isEmpty()) {
+                        mSubscribed.remove(subscription.mType);
+                    } else {
+                        mSubscribed.put(subscription.mType, updated.toArray(NONE));
+                    }
+                    rematch();
+                }
+            }
+            return mSubscribed.isEmpty();
+        }
+
+        /** Recomputes the arrays of matching subscriptions for all published classes. */
+        @GuardedBy("mLock")
+        private void rematch() {
+            mMatching.replaceAll((type, matching) -> match(type));
+        }
+
+        /** Computes the array of subscriptions that match events of the given class. */
+        @GuardedBy("mLock")
+        private Subscription<?>[] match(final Class<?> type) {
+            final List<Subscription<?>> matching = new ArrayList<>();
+            for (final Class<?> supertype : hierarchy(type)) {
+                final Subscription<?>[] subscribed = mSubscribed.get(supertype);
+                if (subscribed != null) {
+                    matching.addAll(Arrays.asList(subscribed));
+                }
+            }
+            return matching.isEmpty() ? NONE : matching.toArray(NONE);
+        }
+    }
+
+    /**
+     * A {@link Channel} that delegates all calls to a subscribed {@code Channel}. When {@link
+     * #stop stopped}, it also removes the subscription from the bus.
+     *
+     * @param <E> the type of events.
+     */
+    private final class Subscription<E> implements Channel<E> {
+
+        /** The topic, or {@link #NO_TOPIC} if subscribed without one. */
+        final Object mTopic;
+        final Class<E> mType;
+        private final Channel<? super E> mSubscriber;
+
+        Subscription(final Object topic, final Class<E> type, final Channel<? super E> subscriber) {
+            mTopic = topic;
+            mType = type;
+            mSubscriber = subscriber;
+        }
+
+        @Override
+        public boolean send(final E event) {
+            return mSubscriber.send(event);
+        }
+
+        @Override
+        public void stop() {
+            unsubscribe(this);
+            mSubscriber.stop();
+        }
+
+        /** Sends the given published event, which must be an instance of the subscribed class. */
+        boolean deliver(final Object event) {
+            return mSubscriber.send(mType.cast(event));
+        }
+    }
+}
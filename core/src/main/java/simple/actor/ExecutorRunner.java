@@ -0,0 +1,88 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A {@link Runner} that executes {@link Runnable Runnables} on an existing {@link Executor}.
+ *
+ * <p>{@code Runnables} sent to the same {@link Channel} are executed one at a time, in the same
+ * order they were sent. A {@code Channel} does not submit a task to the {@code Executor} for every
+ * {@code Runnable}; instead, it submits a single task when it has {@code Runnables} to execute,
+ * and that task executes a batch of them. Therefore, a {@code Channel} occupies at most one task of
+ * the {@code Executor} at a time.
+ *
+ * <p>If the {@code Executor} rejects a task, the {@code Channel} will be stopped and its pending
+ * {@code Runnables} will never be executed.
+ */
+public final class ExecutorRunner implements Runner {
+
+    private static final int DEFAULT_BATCH = 64;
+
+    private final Executor mExecutor;
+    private final int mBatch;
+
+    /**
+     * Creates a runner that will execute {@link Runnable Runnables} on the given {@link Executor}.
+     *
+     * @param executor the {@code Executor}.
+     */
+    public ExecutorRunner(final Executor executor) {
+        this(executor, DEFAULT_BATCH);
+    }
+
+    /**
+     * Creates a runner that will execute {@link Runnable Runnables} on the given {@link Executor}.
+     *
+     * @param executor the {@code Executor}.
+     * @param batch    the maximum number of {@code Runnables} that a {@link Channel} executes in
+     *                 one task of the {@code Executor}.
+     */
+    public ExecutorRunner(final Executor executor, final int batch) {
+        if (batch < 1) {
+            throw new IllegalArgumentException("batch must be positive");
+        }
+
+        mExecutor = executor;
+        mBatch = batch;
+    }
+
+    @Override
+    public Channel<Runnable> create() {
+        return new ExecutorChannel();
+    }
+
+    /** A {@link SerialChannel} that runs as a task of the {@link Executor}. */
+    private final class ExecutorChannel extends SerialChannel {
+
+        ExecutorChannel() {
+            super(mBatch);
+        }
+
+        @Override
+        protected boolean schedule() {
+            try {
+                mExecutor.execute(this);
+                return true;
+            } catch (final RejectedExecutionException ignored) {
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.TimeUnit;
+
+import static simple.actor.Checks.checkNotNull;
+
+/**
+ * A {@link Channel} whose messages may be sent with a time-to-live or a deadline.
+ *
+ * <p>The deadline of a message is checked when it is dequeued, right before the {@link Actor}
+ * would receive it. An expired message is not delivered to the {@code Actor}; instead it is counted
+ * and sent to the dead-letter {@code Channel}, if there is one. This way an overloaded {@code
+ * Actor} sheds the work whose callers have already given up and catches up sooner.
+ *
+ * <p>Messages sent with {@link #send(Object)}, including the ones the {@code Actor} sends to
+ * itself, never expire.
+ *
+ * @param <M> the type of sent messages.
+ */
+public final class Expiring<M> implements Channel<M> {
+
+    /**
+     * Set by the registered actor when it is started, which may happen before the registration
+     * returns, so that the actor can send messages to itself from {@link Actor#onStart onStart}.
+     */
+    @Nullable
+    private volatile Channel<Envelope<M>> mChannel;
+
+    /** Written only while the actor receives a message. */
+    private volatile long mExpired = 0;
+
+    private Expiring() {}
+
+    /**
+     * Registers the given {@link Actor} with the given {@link Context}.
+     *
+     * @param context     the {@code Context} with which the {@code Actor} will be registered.
+     * @param actor       the {@code Actor} that receives messages.
+     * @param deadLetters the {@link Channel} that receives expired messages, or {@code null} if
+     *                    expired messages should only be counted.
+     * @param <M>         the type of messages that {@code Actor} receives.
+     *
+     * @return a {@code Channel} to send messages to the {@code Actor}.
+     */
+    public static <M> Expiring<M> register(final Context context,
+                                           final Actor<M> actor,
+                                           @Nullable final Channel<? super M> deadLetters) {
+        checkNotNull(context, "context");
+        checkNotNull(actor, "actor");
+        final Expiring<M> expiring = new Expiring<>();
+        expiring.mChannel = context.register(new Checked<>(expiring, actor, deadLetters));
+        return expiring;
+    }
+
+    /** Sends the given message, which never expires. */
+    @Override
+    public boolean send(final M message) {
+        return channel().send(new Envelope<>(message, false /*no deadline*/, 0));
+    }
+
+    /**
+     * Sends the given message, which expires if it is not received in the given time.
+     *
+     * @param message the message.
+     * @param ttl     the time-to-live of the message.
+     * @param unit    the unit of the time-to-live.
+     *
+     * @return {@code true} if channel has not been stopped; otherwise {@code false}.
+     */
+    public boolean send(final M message, final long ttl, final TimeUnit unit) {
+        return sendBefore(message, java.lang.System.nanoTime() + unit.toNanos(ttl));
+    }
+
+    /**
+     * Sends the given message, which expires if it is not received before the given deadline.
+     *
+     * @param message  the message.
+     * @param deadline the deadline, as a value of {@link java.lang.System#nanoTime()}.
+     *
+     * @return {@code true} if channel has not been stopped; otherwise {@code false}.
+     */
+    public boolean sendBefore(final M message, final long deadline) {
+        return channel().send(new Envelope<>(message, true /*has deadline*/, deadline));
+    }
+
+    @Override
+    public void stop() {
+        channel().stop();
+    }
+
+    /**
+     * Returns the number of messages that expired before they were received.
+     *
+     * @return the number of expired messages.
+     */
+    public long getExpiredCount() {
+        return mExpired;
+    }
+
+    private Channel<Envelope<M>> channel() {
+        return checkNotNull(mChannel, "channel");
+    }
+
+    private static final class Envelope<M> {
+
+        final M mMessage;
+        final boolean mExpires;
+        final long mDeadline;
+
+        Envelope(final M message, final boolean expires, final long deadline) {
+            mMessage = message;
+            mExpires = expires;
+            mDeadline = deadline;
+        }
+    }
+
+    /** Delivers messages to the {@link Actor} unless they are expired. */
+    private static final class Checked<M> extends Actor<Envelope<M>> {
+
+        private final Expiring<M> mChannel;
+        private final Actor<M> mActor;
+        @Nullable
+        private final Channel<? super M> mDeadLetters;
+
+        Checked(final Expiring<M> channel,
+                final Actor<M> actor,
+                @Nullable final Channel<? super M> deadLetters) {
+            mChannel = channel;
+            mActor = actor;
+            mDeadLetters = deadLetters;
+        }
+
+        @Override
+        protected void onStart(final Channel<Envelope<M>> self, final Context context) {
+            mChannel.mChannel = self;
+            mActor.onStart(mChannel, context);
+        }
+
+        @Override
+        protected void onMessage(final Envelope<M> envelope) {
+            if (envelope.mExpires && ((java.lang.System.nanoTime() - envelope.mDeadline) > 0)) {
+                mChannel.mExpired++;
+                if (mDeadLetters != null) {
+                    mDeadLetters.send(envelope.mMessage);
+                }
+            } else {
+                mActor.onMessage(envelope.mMessage);
+            }
+        }
+
+        @Override
+        protected void onStop() {
+            mActor.onStop();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor;
+
+/**
+ * Common interface for observing or wrapping {@link Actor#onMessage delivery} of messages to {@link
+ * Actor Actors}.
+ */
+@FunctionalInterface
+public interface Interceptor {
+
+    /**
+     * Delivers a message to the given {@link Actor} by running the given delivery. Implementations
+     * must run the delivery exactly once, on the calling thread.
+     *
+     * @param actor    the {@code Actor} that receives the message.
+     * @param delivery the {@link Runnable} that delivers the message.
+     */
+    void intercept(Actor<?> actor, Runnable delivery);
+
+    /**
+     * Returns an {@code Interceptor} that wraps deliveries first with this {@code Interceptor} and
+     * then with the given one (i.e. the given one runs inside this one).
+     */
+    default Interceptor andThen(final Interceptor next) {
+        return (actor, delivery) -> intercept(actor, () -> next.intercept(actor, delivery));
+    }
+}
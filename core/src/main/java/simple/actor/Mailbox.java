@@ -23,6 +23,8 @@ import org.jetbrains.annotations.Nullable;
 import java.util.ArrayDeque;
 import java.util.Queue;
 
+import static simple.actor.Checks.checkNotNull;
+
 /**
  * A {@link Channel} that delegates all calls to the connected {@code Channel} or if no {@code
  * Channel} is connected, stores messages and resends them when a {@code Channel} is connected.
@@ -44,17 +46,32 @@ import java.util.Queue;
  */
 public final class Mailbox<M> implements Channel<M> {
 
+    private static final int DEFAULT_CAPACITY = 16;
+
     private final Object mLock = new Object();
+    private final int mCapacity;
     @GuardedBy("mLock")
-    private final Queue<M> mPending = new ArrayDeque<>();
+    private Queue<M> mPending;
 
     @Nullable
     @GuardedBy("mLock")
     private Channel<M> mChannel;
+    @Nullable
+    @GuardedBy("mLock")
+    private Channel<M> mConnecting;
 
     @GuardedBy("mLock")
     private boolean mStopped = false;
 
+    /** The thread that is resending stored messages, if any. */
+    @Nullable
+    @GuardedBy("mLock")
+    private Thread mResender;
+    /** The stored messages being resent. Polled only by the resending thread. */
+    @Nullable
+    @GuardedBy("mLock")
+    private Queue<M> mBatch;
+
     /** Creates a mailbox in disconnected mode. */
     public Mailbox() {
         this(null);
@@ -66,7 +83,23 @@ public final class Mailbox<M> implements Channel<M> {
      * @param channel the connected {@code Channel}.
      */
     public Mailbox(@Nullable final Channel<M> channel) {
+        this(channel, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a mailbox that is connected to the given {@link Channel} and expects to store about
+     * the given number of messages while disconnected.
+     *
+     * @param channel  the connected {@code Channel}.
+     * @param capacity the initial capacity of the storage for messages.
+     */
+    public Mailbox(@Nullable final Channel<M> channel, final int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
         mChannel = channel;
+        mCapacity = capacity;
+        mPending = new ArrayDeque<>(capacity);
     }
 
     /**
@@ -75,19 +108,80 @@ public final class Mailbox<M> implements Channel<M> {
      * <p>At this moment, the mailbox will resend any stored messages in the same order they were
      * received. If the mailbox was stopped, it will also stop the {@code Channel}.
      *
+     * <p>Stored messages are taken from the mailbox in batches and resent without holding the
+     * mailbox's lock, so clients sending messages concurrently are not blocked while the stored
+     * messages are being resent. Their messages are stored and resent after the current batch, and
+     * the mailbox switches to connected mode only once there are no more stored messages. If the
+     * mailbox is {@link #disconnect disconnected} or connected to another {@code Channel} in the
+     * meantime, the current batch is still resent but the mailbox stays in the new mode.
+     *
+     * <p>Concurrent connects are serialized, so that messages stay in order across them: a connect
+     * waits until the batch that another thread is resending has been resent, and then resends the
+     * rest of the stored messages. A connect made on the resending thread itself, e.g. by the
+     * {@code Channel} that receives the batch, takes over the rest of the batch instead.
+     *
      * @param channel the {@code Channel} to connect to.
      */
     public void connect(final Channel<M> channel) {
+        final Thread current = Thread.currentThread();
+        Queue<M> batch;
         synchronized (mLock) {
-            while (!mPending.isEmpty()) {
-                channel.send(mPending.poll());
+            mChannel = null;
+            mConnecting = channel;
+            awaitResender(current);
+            if (mConnecting != channel) {
+                return;
             }
 
-            if (mStopped) {
-                channel.stop();
-            } else {
-                mChannel = channel;
+            if (mResender == null) {
+                mResender = current;
+                mBatch = takePending();
             }
+            batch = checkNotNull(mBatch, "batch");
+        }
+
+        try {
+            while (true) {
+                for (M message = batch.poll(); message != null; message = batch.poll()) {
+                    channel.send(message);
+                }
+
+                synchronized (mLock) {
+                    if (mBatch != batch) {
+                        // a connect made while resending the batch has taken it over
+                        return;
+                    }
+
+                    if (mConnecting != channel) {
+                        release();
+                        return;
+                    }
+
+                    if (mPending.isEmpty()) {
+                        mConnecting = null;
+                        if (mStopped) {
+                            channel.stop();
+                        } else {
+                            mChannel = channel;
+                        }
+                        release();
+                        return;
+                    }
+
+                    batch = takePending();
+                    mBatch = batch;
+                }
+            }
+        } catch (final RuntimeException e) {
+            synchronized (mLock) {
+                if (mBatch == batch) {
+                    // the rest of the batch is stored again for the next connect
+                    batch.addAll(mPending);
+                    mPending = batch;
+                    release();
+                }
+            }
+            throw e;
         }
     }
 
@@ -100,6 +194,7 @@ public final class Mailbox<M> implements Channel<M> {
     public void disconnect() {
         synchronized (mLock) {
             mChannel = null;
+            mConnecting = null;
         }
     }
 
@@ -138,4 +233,36 @@ public final class Mailbox<M> implements Channel<M> {
             }
         }
     }
+
+    /** Waits until no thread other than the given one is resending stored messages. */
+    @GuardedBy("mLock")
+    private void awaitResender(final Thread current) {
+        boolean interrupted = false;
+        while ((mResender != null) && (mResender != current)) {
+            try {
+                mLock.wait();
+            } catch (final InterruptedException ignored) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            current.interrupt();
+        }
+    }
+
+    /** Lets the next connect resend stored messages. */
+    @GuardedBy("mLock")
+    private void release() {
+        mResender = null;
+        mBatch = null;
+        mLock.notifyAll();
+    }
+
+    /** Takes all stored messages out of the mailbox. */
+    @GuardedBy("mLock")
+    private Queue<M> takePending() {
+        final Queue<M> pending = mPending;
+        mPending = new ArrayDeque<>(mCapacity);
+        return pending;
+    }
 }
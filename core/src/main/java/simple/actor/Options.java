@@ -0,0 +1,155 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Options for {@link System#register(Actor, Options) registering} an {@link Actor} with a {@link
+ * System}: which of the {@code System's} {@link Runner Runners} delivers its messages and what kind
+ * of mailbox stores messages that are sent but not yet delivered.
+ *
+ * <p>For example, a latency-sensitive {@code Actor} can be registered on a {@link PinnedRunner}
+ * configured under the name {@code "hot"} with a bounded mailbox, so that a burst of messages is
+ * rejected instead of delaying all later messages:
+ *
+ * <pre>{@code
+ * System system = new System.Builder(common).runner("hot", pinned).build();
+ * Channel<Order> orders = system.register(actor, new Options.Builder()
+ *         .runner("hot")
+ *         .bounded(1024)
+ *         .build());
+ * if (!System.trySend(orders, order)) {
+ *     // the mailbox is full, or the actor has been stopped
+ * }
+ * }</pre>
+ */
+public final class Options {
+
+    /** The name of the {@link Runner} for {@link Actor Actors} that block. */
+    public static final String BLOCKING_RUNNER = "blocking";
+
+    /** The options used by {@link System#register(Actor)}. */
+    public static final Options DEFAULT = new Builder().build();
+
+    /** The options used by {@link System#registerBlocking(Actor)}. */
+    public static final Options BLOCKING = new Builder().runner(BLOCKING_RUNNER).build();
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    @Nullable
+    private final String mRunner;
+    private final int mCapacity;
+    private final boolean mBounded;
+
+    private Options(final Builder builder) {
+        mRunner = builder.mRunner;
+        mCapacity = builder.mCapacity;
+        mBounded = builder.mBounded;
+    }
+
+    /**
+     * Returns the name of the {@link Runner} that delivers messages.
+     *
+     * @return the name of the {@code Runner}, or {@code null} for the {@link System System's}
+     * common {@code Runner}.
+     */
+    @Nullable
+    public String getRunner() {
+        return mRunner;
+    }
+
+    /**
+     * Returns the capacity of the mailbox. For an unbounded mailbox, this is only a hint of how
+     * many messages the mailbox is expected to store.
+     *
+     * @return the capacity of the mailbox.
+     */
+    public int getCapacity() {
+        return mCapacity;
+    }
+
+    /**
+     * Returns whether the mailbox rejects messages {@link System#trySend sent with trySend} when it
+     * is full.
+     *
+     * @return {@code true} if the mailbox is bounded, otherwise {@code false}.
+     */
+    public boolean isBounded() {
+        return mBounded;
+    }
+
+    /** Builder of {@link Options}. All options not set on the builder have default values. */
+    public static final class Builder {
+
+        @Nullable
+        private String mRunner;
+        private int mCapacity = DEFAULT_CAPACITY;
+        private boolean mBounded = false;
+
+        /**
+         * Sets the name of the {@link Runner}, configured with {@link System.Builder#runner}, that
+         * delivers messages.
+         *
+         * @param runner the name of the {@code Runner}.
+         *
+         * @return this builder.
+         */
+        public Builder runner(final String runner) {
+            mRunner = runner;
+            return this;
+        }
+
+        /**
+         * Sets an unbounded mailbox that is expected to store about the given number of messages.
+         *
+         * @param capacity the expected number of stored messages.
+         *
+         * @return this builder.
+         */
+        public Builder capacity(final int capacity) {
+            if (capacity < 1) {
+                throw new IllegalArgumentException("capacity must be positive");
+            }
+            mCapacity = capacity;
+            mBounded = false;
+            return this;
+        }
+
+        /**
+         * Sets a bounded mailbox that stores at most the given number of messages sent with {@link
+         * System#trySend}. Such messages are rejected when the mailbox is full, i.e. {@code
+         * trySend} returns {@code false}, but the {@link Channel} is not stopped. Messages sent
+         * with {@link Channel#send} are stored even in a full mailbox, because a {@code false}
+         * returned by {@code send} means that the {@code Channel} has been stopped.
+         *
+         * @param capacity the maximum number of stored messages.
+         *
+         * @return this builder.
+         */
+        public Builder bounded(final int capacity) {
+            capacity(capacity);
+            mBounded = true;
+            return this;
+        }
+
+        /** Creates options with the current configuration. */
+        public Options build() {
+            return new Options(this);
+        }
+    }
+}
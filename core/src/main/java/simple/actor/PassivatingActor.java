@@ -0,0 +1,38 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor;
+
+/**
+ * Base class for {@link Actor Actors} that can be {@link Passivation passivated}. When passivated,
+ * the actor's state is stored outside of the heap and the actor itself is released; the actor is
+ * recreated from the stored state when a message is sent to it again.
+ *
+ * <p>Every incarnation of the actor is {@link #onStart started}, but only the last one is {@link
+ * #onStop stopped}. Instead of being stopped, passivated incarnations are asked for their {@link
+ * #getState state}.
+ *
+ * @param <M> the type of received messages.
+ * @param <S> the type of actor's state.
+ */
+public abstract class PassivatingActor<M, S> extends Actor<M> {
+
+    /**
+     * Returns the current state of the actor. This method is called when the actor is passivated,
+     * after all previously sent messages have been {@link #onMessage delivered}.
+     */
+    protected abstract S getState();
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor;
+
+import net.jcip.annotations.GuardedBy;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static simple.actor.Checks.checkNotNull;
+
+/**
+ * A registry of {@link PassivatingActor PassivatingActors} that releases actors which have not
+ * received a message for a configured idle period.
+ *
+ * <p>A passivated actor's state is {@link Codec#encode encoded} into a direct {@link ByteBuffer}
+ * (i.e. outside of the heap) and all other objects held by the actor, including its {@link
+ * Context#register registration}, are released. The {@link Channel} returned by {@link #register
+ * register} stays valid; the actor is transparently recreated from its stored state when a message
+ * is sent to the {@code Channel} again.
+ *
+ * <p>Actors are passivated only when {@link #passivateIdle passivateIdle} is called, which is
+ * usually done periodically by a {@link java.util.concurrent.ScheduledExecutorService}.
+ */
+public final class Passivation {
+
+    private final Context mContext;
+    private final long mIdle;
+    private final Set<Passivated<?, ?>> mChannels = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Creates a registry that will passivate actors that were idle for at least the given period.
+     *
+     * @param context the {@link Context} with which the actors will be registered when active.
+     * @param idle    the idle period after which an actor may be passivated.
+     * @param unit    the unit of the idle period.
+     */
+    public Passivation(final Context context, final long idle, final TimeUnit unit) {
+        mContext = context;
+        mIdle = unit.toNanos(idle);
+    }
+
+    /**
+     * Registers a {@link PassivatingActor} that will be created from the given state by the given
+     * factory. The actor starts in passivated mode and will be created when the first message is
+     * sent to it.
+     *
+     * @param factory the function that creates an actor from its state.
+     * @param codec   the {@link Codec} for the actor's state.
+     * @param state   the initial state of the actor.
+     * @param <M>     the type of messages that actor receives.
+     * @param <S>     the type of actor's state.
+     *
+     * @return a {@link Channel} to send messages to the actor.
+     */
+    public <M, S> Channel<M> register(final Function<S, ? extends PassivatingActor<M, S>> factory,
+                                      final Codec<S> codec,
+                                      final S state) {
+        final ByteBuffer stored = store(codec.encode(state));
+        final Passivated<M, S> channel = new Passivated<>(factory, codec, stored);
+        mChannels.add(channel);
+        return channel;
+    }
+
+    /** Passivates all actors that have not received a message during the idle period. */
+    public void passivateIdle() {
+        final long now = java.lang.System.nanoTime();
+        for (final Passivated<?, ?> channel : mChannels) {
+            channel.passivateIfIdle(now);
+        }
+    }
+
+    /** Copies the remaining bytes of the given buffer into a new direct {@link ByteBuffer}. */
+    private static ByteBuffer store(final ByteBuffer encoded) {
+        final ByteBuffer stored = ByteBuffer.allocateDirect(encoded.remaining());
+        stored.put(encoded);
+        stored.flip();
+        return stored;
+    }
+
+    /**
+     * A {@link Channel} to a {@link PassivatingActor} that is either active (i.e. registered with
+     * the {@link Context}) or passivated (i.e. stored in a direct {@link ByteBuffer}).
+     *
+     * <p>While an actor is being passivated, all sent messages are stored in a {@link Mailbox} and
+     * resent once the actor is recreated.
+     *
+     * @param <M> the type of sent messages.
+     * @param <S> the type of actor's state.
+     */
+    private final class Passivated<M, S> implements Channel<M> {
+
+        private final Function<S, ? extends PassivatingActor<M, S>> mFactory;
+        private final Codec<S> mCodec;
+
+        private final Object mLock = new Object();
+        @GuardedBy("mLock")
+        private final Mailbox<M> mMailbox = new Mailbox<>();
+
+        @Nullable
+        @GuardedBy("mLock")
+        private ByteBuffer mStored;
+        @Nullable
+        @GuardedBy("mLock")
+        private Incarnation<M, S> mActive;
+        @GuardedBy("mLock")
+        private boolean mPassivating = false;
+        @GuardedBy("mLock")
+        private boolean mWaiting = false;
+        @GuardedBy("mLock")
+        private boolean mStopped = false;
+
+        private volatile long mLastSent = java.lang.System.nanoTime();
+
+        Passivated(final Function<S, ? extends PassivatingActor<M, S>> factory,
+                   final Codec<S> codec,
+                   final ByteBuffer stored) {
+            mFactory = factory;
+            mCodec = codec;
+            mStored = stored;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * <p>If the actor is passivated, it will be recreated before the message is sent. If the
+         * actor is being passivated, the message will be stored and resent once the actor is
+         * recreated.
+         */
+        @Override
+        public boolean send(final M message) {
+            synchronized (mLock) {
+                if (mStopped) {
+                    return false;
+                }
+
+                mLastSent = java.lang.System.nanoTime();
+                if (mPassivating) {
+                    mWaiting = true;
+                } else if (mActive == null) {
+                    activate();
+                }
+                return mMailbox.send(message);
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * <p>If the actor is active, it will be asynchronously {@link Actor#onStop stopped}. If the
+         * actor is passivated, its stored state will be released without recreating it.
+         */
+        @Override
+        public void stop() {
+            synchronized (mLock) {
+                if (!mStopped) {
+                    mStopped = true;
+                    mStored = null;
+                    mMailbox.stop();
+                    mChannels.remove(this);
+                }
+            }
+        }
+
+        /**
+         * Passivates the actor if it is active and it has not received a message since the idle
+         * period before the given moment.
+         *
+         * @param now the current value of {@link java.lang.System#nanoTime}.
+         */
+        void passivateIfIdle(final long now) {
+            synchronized (mLock) {
+                if ((mActive != null) && !mStopped && ((now - mLastSent) >= mIdle)) {
+                    final Incarnation<M, S> active = mActive;
+                    mMailbox.disconnect();
+                    mActive = null;
+                    mPassivating = true;
+                    active.passivate();
+                }
+            }
+        }
+
+        /**
+         * Stores the state of the passivated actor. If messages were sent in the meantime or the
+         * {@link Channel} was stopped, the actor is immediately recreated to receive them.
+         *
+         * @param encoded the encoded state of the actor.
+         */
+        void passivated(final ByteBuffer encoded) {
+            final ByteBuffer stored = store(encoded);
+            synchronized (mLock) {
+                mStored = stored;
+                mPassivating = false;
+                if (mWaiting || mStopped) {
+                    mWaiting = false;
+                    activate();
+                }
+            }
+        }
+
+        /** Recreates the actor from the stored state and registers it with the {@link Context}. */
+        @GuardedBy("mLock")
+        private void activate() {
+            final ByteBuffer stored = checkNotNull(mStored, "stored state");
+            final Incarnation<M, S> active =
+                    new Incarnation<>(this, mFactory.apply(mCodec.decode(stored.duplicate())));
+            active.register(mContext);
+            mStored = null;
+            mActive = active;
+            mMailbox.connect(active);
+        }
+    }
+
+    /**
+     * An {@link Actor} that delegates all calls to a single incarnation of a {@link
+     * PassivatingActor}. When passivated, instead of {@link Actor#onStop stopping} the {@code
+     * PassivatingActor}, it stores its {@link PassivatingActor#getState state}.
+     *
+     * @param <M> the type of received messages.
+     * @param <S> the type of actor's state.
+     */
+    private static final class Incarnation<M, S> extends Actor<M> implements Channel<M> {
+
+        private final Passivation.Passivated<M, S> mOwner;
+        private final PassivatingActor<M, S> mActor;
+
+        @Nullable
+        private Channel<M> mChannel;
+        private volatile boolean mPassivated = false;
+
+        Incarnation(final Passivation.Passivated<M, S> owner, final PassivatingActor<M, S> actor) {
+            mOwner = owner;
+            mActor = actor;
+        }
+
+        @Override
+        protected void onMessage(final M message) {
+            mActor.onMessage(message);
+        }
+
+        /** Starts the incarnation with the passivating {@link Channel} as its own channel. */
+        @Override
+        protected void onStart(final Channel<M> self, final Context context) {
+            mActor.onStart(mOwner, context);
+        }
+
+        @Override
+        protected void onStop() {
+            if (mPassivated) {
+                mOwner.passivated(mOwner.mCodec.encode(mActor.getState()));
+            } else {
+                mActor.onStop();
+            }
+        }
+
+        @Override
+        public boolean send(final M message) {
+            return checkNotNull(mChannel, "channel").send(message);
+        }
+
+        @Override
+        public void stop() {
+            checkNotNull(mChannel, "channel").stop();
+        }
+
+        /** Registers the incarnation with the given {@link Context}. */
+        void register(final Context context) {
+            mChannel = context.register(this);
+        }
+
+        /** Stops the incarnation and stores the actor's state once all messages are delivered. */
+        void passivate() {
+            mPassivated = true;
+            stop();
+        }
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link Runner} that executes {@link Runnable Runnables} on a fixed number of threads, each
+ * {@link Channel} always on the same thread.
+ *
+ * <p>{@code Channels} are assigned to threads in round-robin order unless {@link #create(int)
+ * created} for a specific thread. Since a {@code Channel} never moves between threads, its {@code
+ * Runnables} are executed one at a time, in the same order they were sent, and the data they use
+ * stays in the caches of a single core.
+ *
+ * <p>The runner measures how long each thread and each {@code Channel} was busy, which can be used
+ * by a {@link Rebalancer} to {@link System#migrate migrate} {@link Actor Actors} between threads.
+ */
+public final class PinnedRunner implements Runner {
+
+    private static final int BATCH = 64;
+    private static final int SPINS = 128;
+
+    private final Worker[] mWorkers;
+    private final AtomicInteger mNext = new AtomicInteger(0 /*initial value*/);
+
+    /**
+     * Creates a runner that will use given number of threads.
+     *
+     * @param threads the number of threads.
+     */
+    public PinnedRunner(final int threads) {
+        this(threads, Executors.defaultThreadFactory());
+    }
+
+    /**
+     * Creates a runner that will use given number of threads created by the given {@link
+     * ThreadFactory}.
+     *
+     * @param threads the number of threads.
+     * @param factory the {@code ThreadFactory} that creates threads.
+     */
+    public PinnedRunner(final int threads, final ThreadFactory factory) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive");
+        }
+
+        mWorkers = new Worker[threads];
+        for (int i = 0; i < threads; i++) {
+            mWorkers[i] = new Worker(factory);
+        }
+    }
+
+    /** Creates a {@link Channel} on the next thread in round-robin order. */
+    @Override
+    public Channel<Runnable> create() {
+        return create(Math.floorMod(mNext.getAndIncrement(), mWorkers.length));
+    }
+
+    /**
+     * Creates a {@link Channel} on the given thread.
+     *
+     * @param thread the index of the thread.
+     */
+    public Channel<Runnable> create(final int thread) {
+        return new PinnedChannel(mWorkers[thread]);
+    }
+
+    /** Returns the number of threads. */
+    public int getThreadCount() {
+        return mWorkers.length;
+    }
+
+    /** Returns how long the given thread was busy executing {@link Runnable Runnables}. */
+    public long getBusyTime(final int thread, final TimeUnit unit) {
+        return unit.convert(mWorkers[thread].mBusy, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns how long the given thread was busy executing {@link Runnable Runnables} sent to the
+     * given {@link Channel}, which must have been created by this runner.
+     */
+    public long getBusyTime(final Channel<Runnable> channel, final TimeUnit unit) {
+        return unit.convert(((PinnedChannel) channel).mBusy, TimeUnit.NANOSECONDS);
+    }
+
+    /** Returns all {@link Channel Channels} on the given thread that have not been stopped. */
+    public List<Channel<Runnable>> getChannels(final int thread) {
+        return new ArrayList<>(mWorkers[thread].mChannels);
+    }
+
+    /**
+     * Stops all threads of the runner. {@link Runnable Runnables} that have not been executed yet
+     * will never be executed.
+     */
+    public void shutdown() {
+        for (final Worker worker : mWorkers) {
+            worker.mThread.interrupt();
+        }
+    }
+
+    /** A thread that executes its {@link Channel Channels}. */
+    private static final class Worker {
+
+        final Thread mThread;
+        final BlockingQueue<PinnedChannel> mQueue = new LinkedBlockingQueue<>();
+        final Set<Channel<Runnable>> mChannels = ConcurrentHashMap.newKeySet();
+
+        /** Written only by the worker's thread. */
+        volatile long mBusy = 0;
+
+        Worker(final ThreadFactory factory) {
+            mThread = factory.newThread(this::work);
+            mThread.start();
+        }
+
+        /**
+         * Executes scheduled {@link Channel Channels} until interrupted. Exceptions thrown by
+         * {@link Runnable Runnables} are {@link Uncaught#report reported} and the thread continues
+         * with the next {@code Channel}, since all other {@code Channels} pinned to the thread
+         * depend on it.
+         */
+        private void work() {
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    final PinnedChannel channel = next();
+                    final long start = java.lang.System.nanoTime();
+                    try {
+                        channel.run();
+                    } catch (final RuntimeException e) {
+                        Uncaught.report(e);
+                    } finally {
+                        final long busy = java.lang.System.nanoTime() - start;
+                        channel.mBusy += busy;
+                        mBusy += busy;
+                    }
+                }
+            } catch (final InterruptedException ignored) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Returns the next scheduled {@link Channel}. The thread spins for a short while before
+         * it blocks, since waking up a blocked thread costs more than a few spins when new work
+         * arrives right away.
+         */
+        private PinnedChannel next() throws InterruptedException {
+            for (int i = 0; i < SPINS; i++) {
+                final PinnedChannel channel = mQueue.poll();
+                if (channel != null) {
+                    return channel;
+                }
+                Spin.onSpinWait();
+            }
+            return mQueue.take();
+        }
+    }
+
+    /** A {@link SerialChannel} that is always executed by the same {@link Worker}. */
+    private static final class PinnedChannel extends SerialChannel {
+
+        private final Worker mWorker;
+
+        /** Written only by the worker's thread. */
+        volatile long mBusy = 0;
+
+        PinnedChannel(final Worker worker) {
+            super(BATCH);
+            mWorker = worker;
+            mWorker.mChannels.add(this);
+        }
+
+        @Override
+        protected boolean schedule() {
+            return mWorker.mQueue.add(this);
+        }
+
+        @Override
+        public void stop() {
+            super.stop();
+            mWorker.mChannels.remove(this);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Balances the load of the threads of a {@link PinnedRunner} by {@link System#migrateFrom
+ * migrating} {@link Actor Actors} from the busiest thread to the least busy one.
+ *
+ * <p>The load is measured between consecutive calls to {@link #rebalance}, which is usually called
+ * periodically by a {@link java.util.concurrent.ScheduledExecutorService}. Each call migrates at
+ * most one {@code Actor}: the busiest one whose move reduces the difference between the two
+ * threads.
+ */
+public final class Rebalancer {
+
+    private final System mSystem;
+    private final PinnedRunner mRunner;
+    private final double mImbalance;
+
+    private final long[] mThreadBusy;
+    private Map<Channel<Runnable>, Long> mChannelBusy = new HashMap<>();
+
+    /**
+     * Creates a rebalancer for {@link Actor Actors} registered with the given {@link System} that
+     * uses the given {@link PinnedRunner}.
+     *
+     * @param system    the {@code System}.
+     * @param runner    the {@code PinnedRunner}.
+     * @param imbalance the minimal difference between the load of the busiest and the least busy
+     *                  thread, as a fraction of the busiest thread's load, that triggers a
+     *                  migration.
+     */
+    public Rebalancer(final System system, final PinnedRunner runner, final double imbalance) {
+        mSystem = system;
+        mRunner = runner;
+        mImbalance = imbalance;
+        mThreadBusy = new long[runner.getThreadCount()];
+        for (int i = 0; i < mThreadBusy.length; i++) {
+            mThreadBusy[i] = runner.getBusyTime(i, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Migrates at most one {@link Actor} from the busiest to the least busy thread, if the load
+     * measured since the last call is imbalanced.
+     *
+     * @return {@code true} if an {@code Actor} was migrated.
+     */
+    public synchronized boolean rebalance() {
+        final int threads = mThreadBusy.length;
+        final long[] loads = new long[threads];
+        int busiest = 0;
+        int idlest = 0;
+        for (int i = 0; i < threads; i++) {
+            final long busy = mRunner.getBusyTime(i, TimeUnit.NANOSECONDS);
+            loads[i] = busy - mThreadBusy[i];
+            mThreadBusy[i] = busy;
+            if (loads[i] > loads[busiest]) {
+                busiest = i;
+            }
+            if (loads[i] < loads[idlest]) {
+                idlest = i;
+            }
+        }
+
+        final Map<Channel<Runnable>, Long> channelBusy = new HashMap<>();
+        Channel<Runnable> candidate = null;
+        long candidateLoad = 0;
+        final long gap = loads[busiest] - loads[idlest];
+        for (int i = 0; i < threads; i++) {
+            for (final Channel<Runnable> channel : mRunner.getChannels(i)) {
+                final long busy = mRunner.getBusyTime(channel, TimeUnit.NANOSECONDS);
+                channelBusy.put(channel, busy);
+                final long load = busy - mChannelBusy.getOrDefault(channel, 0L);
+                if ((i == busiest) && (load > candidateLoad) && (load <= (gap / 2))) {
+                    candidate = channel;
+                    candidateLoad = load;
+                }
+            }
+        }
+        mChannelBusy = channelBusy;
+
+        if ((busiest == idlest) || (gap <= (mImbalance * loads[busiest])) || (candidate == null)) {
+            return false;
+        }
+
+        final Channel<Runnable> target = mRunner.create(idlest);
+        if (mSystem.migrateFrom(candidate, target)) {
+            return true;
+        }
+        target.stop();
+        return false;
+    }
+}
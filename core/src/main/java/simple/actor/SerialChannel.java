@@ -0,0 +1,121 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A {@link Channel} that executes sent {@link Runnable Runnables} one at a time, in the same order
+ * they were sent.
+ *
+ * <p>Sent {@code Runnables} are stored in a lock-free queue. The first {@code Runnable} sent to an
+ * idle channel {@link #schedule schedules} the channel, which is a signal for the implementation to
+ * eventually {@link #run} it on some thread. Until the channel runs, all sent {@code Runnables} are
+ * only stored and the channel is not scheduled again. When it runs, the channel executes at most a
+ * batch of stored {@code Runnables} and schedules itself again if there are any left.
+ *
+ * <p>The multi-release JAR contains a Java 9 version of this class that uses {@code VarHandles}.
+ */
+abstract class SerialChannel implements Channel<Runnable>, Runnable {
+
+    private final int mBatch;
+
+    private final Queue<Runnable> mTasks = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean mScheduled = new AtomicBoolean(false /*initial value*/);
+    private volatile boolean mStopped = false;
+
+    /**
+     * Creates a channel that will execute at most the given number of {@link Runnable Runnables}
+     * each time it {@link #run runs}.
+     *
+     * @param batch the maximum number of {@code Runnables} executed in one run.
+     */
+    SerialChannel(final int batch) {
+        if (batch < 1) {
+            throw new IllegalArgumentException("batch must be positive");
+        }
+        mBatch = batch;
+    }
+
+    /**
+     * Schedules the channel to be {@link #run} eventually. Implementations must run the channel
+     * exactly once for each time it is scheduled.
+     *
+     * @return {@code true} if the channel has been scheduled; otherwise {@code false}, in which
+     * case the channel will be {@link #stop stopped}.
+     */
+    protected abstract boolean schedule();
+
+    /**
+     * Stores the given {@link Runnable} and {@link #schedule schedules} the channel if it is idle.
+     *
+     * <p>Note that if channel has been stopped, the send request will be ignored and the {@code
+     * false} value will be returned.
+     */
+    @Override
+    public boolean send(final Runnable task) {
+        if (mStopped) {
+            return false;
+        }
+
+        mTasks.add(task);
+        return trySchedule() || !mStopped;
+    }
+
+    @Override
+    public void stop() {
+        mStopped = true;
+    }
+
+    /**
+     * Executes at most a batch of stored {@link Runnable Runnables}. If there are any left, the
+     * channel is {@link #schedule scheduled} again.
+     */
+    @Override
+    public void run() {
+        try {
+            for (int i = 0; i < mBatch; i++) {
+                final Runnable task = mTasks.poll();
+                if (task == null) {
+                    break;
+                }
+                task.run();
+            }
+        } finally {
+            mScheduled.set(false);
+            if (!mTasks.isEmpty()) {
+                trySchedule();
+            }
+        }
+    }
+
+    /**
+     * Schedules the channel unless it is already scheduled.
+     *
+     * @return {@code false} if channel failed to be scheduled; otherwise {@code true}.
+     */
+    private boolean trySchedule() {
+        if (mScheduled.compareAndSet(false, true) && !schedule()) {
+            mStopped = true;
+            mTasks.clear();
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,441 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A thread-per-core group of shards: every shard is a single thread that runs all {@link Actor
+ * Actors} registered with it, and shards share nothing.
+ *
+ * <p>An {@code Actor} {@link #register registered} with a shard gets a {@link Context} that
+ * registers {@code Actors} with the same shard. Its {@link Channel} can be used from any thread and
+ * picks the cheapest way to the shard's thread:
+ *
+ * <ul>
+ * <li>from the shard's own thread, a message is added to a plain queue that the thread drains
+ * after the current delivery, without any synchronization;</li>
+ * <li>from another shard's thread, it travels over a single-producer/single-consumer queue
+ * dedicated to that pair of shards, so shards never contend with each other;</li>
+ * <li>from any other thread, it falls back to a shared multi-producer queue.</li>
+ * </ul>
+ *
+ * <p>These {@code Channels} do not go through a {@link System System's} mailbox, so they support
+ * neither pausing nor migration, nor the {@code System's} {@link Interceptor} and {@link Budget}.
+ * {@code Actors} that need those can be registered with the shard's {@code System}, returned by
+ * {@link #getSystem}, which delivers their messages on the same thread.
+ *
+ * <p>An idle shard thread spins briefly and then parks until a message arrives from another
+ * thread. Pinning the shard threads to cores, for example with an {@link Affinity} thread factory,
+ * completes the thread-per-core model.
+ */
+public final class Shards {
+
+    private static final int SPINS = 128;
+
+    private static final ThreadLocal<Shard> CURRENT = new ThreadLocal<>();
+
+    private final Shard[] mShards;
+    private final System[] mSystems;
+
+    /**
+     * Creates the given number of shards.
+     *
+     * @param count the number of shards.
+     */
+    public Shards(final int count) {
+        this(count, Executors.defaultThreadFactory());
+    }
+
+    /**
+     * Creates the given number of shards whose threads are created by the given {@link
+     * ThreadFactory}.
+     *
+     * @param count   the number of shards.
+     * @param factory the {@code ThreadFactory} that creates threads.
+     */
+    public Shards(final int count, final ThreadFactory factory) {
+        if (count < 1) {
+            throw new IllegalArgumentException("count must be positive");
+        }
+
+        mShards = new Shard[count];
+        mSystems = new System[count];
+        for (int i = 0; i < count; i++) {
+            mShards[i] = new Shard(mShards, i);
+            mSystems[i] = new System(mShards[i]);
+        }
+        for (final Shard shard : mShards) {
+            shard.start(factory);
+        }
+    }
+
+    /**
+     * Returns the number of shards.
+     *
+     * @return the number of shards.
+     */
+    public int getCount() {
+        return mShards.length;
+    }
+
+    /**
+     * Returns the {@link System} whose {@link Actor Actors} run on the given shard's thread.
+     *
+     * @param shard the index of the shard.
+     *
+     * @return the shard's {@code System}.
+     */
+    public System getSystem(final int shard) {
+        return mSystems[shard];
+    }
+
+    /**
+     * Registers the given {@link Actor} with the given shard.
+     *
+     * @param shard the index of the shard.
+     * @param actor the {@code Actor} that should be registered.
+     * @param <M>   the type of messages that {@code Actor} receives.
+     *
+     * @return a {@link Channel} to send messages to the {@code Actor}.
+     *
+     * @throws IllegalStateException if shards are {@link #shutdown shut down}.
+     */
+    public <M> Channel<M> register(final int shard, final Actor<M> actor) {
+        return mShards[shard].register(actor);
+    }
+
+    /**
+     * Returns the index of the shard whose thread is the calling thread.
+     *
+     * @return the index of the current shard, or {@code -1} if the calling thread is not a shard's
+     * thread.
+     */
+    public int getCurrent() {
+        final Shard shard = CURRENT.get();
+        return ((shard == null) || (shard.mGroup != mShards)) ? -1 : shard.mIndex;
+    }
+
+    /**
+     * Stops all {@link Actor Actors} of all shards and then their threads. Sending messages to the
+     * stopped {@code Actors} fails.
+     */
+    public void shutdown() {
+        for (final System system : mSystems) {
+            system.stop();
+        }
+        for (final Shard shard : mShards) {
+            shard.shutdown();
+        }
+    }
+
+    /**
+     * A single thread that executes the {@link Runnable Runnables} of all its channels and
+     * delivers messages to all {@link Actor Actors} registered with it.
+     */
+    private static final class Shard implements Runner, Context {
+
+        /** All shards of the same {@link Shards}. */
+        final Shard[] mGroup;
+        final int mIndex;
+
+        /** Touched only by the shard's thread. */
+        final Queue<Runnable> mLocal = new ArrayDeque<>();
+        /** The queue from each other shard, indexed by the producing shard. */
+        private final SpscQueue<Runnable>[] mInbound;
+        private final Queue<Runnable> mForeign = new ConcurrentLinkedQueue<>();
+        /** The started and not yet stopped actors. Touched only by the shard's thread. */
+        final Set<ShardActor<?>> mActors = new HashSet<>();
+
+        private volatile Thread mThread;
+        private volatile boolean mParked = false;
+        private volatile boolean mShutdown = false;
+        /** Touched only by the shard's thread. */
+        private boolean mRunning = true;
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Shard(final Shard[] group, final int index) {
+            mGroup = group;
+            mIndex = index;
+            mInbound = new SpscQueue[group.length];
+            for (int i = 0; i < group.length; i++) {
+                if (i != index) {
+                    mInbound[i] = new SpscQueue<>();
+                }
+            }
+        }
+
+        @Override
+        public Channel<Runnable> create() {
+            return new ShardChannel(this);
+        }
+
+        @Override
+        public <M> Channel<M> register(final Actor<M> actor) {
+            if (mShutdown) {
+                throw new IllegalStateException("Shards are shut down");
+            }
+
+            final ShardActor<M> channel = new ShardActor<>(this, actor);
+            enqueue(channel::start);
+            return channel;
+        }
+
+        void start(final ThreadFactory factory) {
+            mThread = factory.newThread(this::work);
+            mThread.start();
+        }
+
+        /**
+         * Executes the given task on the shard's thread, unless the shard is shut down.
+         *
+         * @param task the task.
+         *
+         * @return {@code true} if the task will be executed; otherwise {@code false}.
+         */
+        boolean send(final Runnable task) {
+            if (mShutdown) {
+                return false;
+            }
+
+            enqueue(task);
+            return true;
+        }
+
+        /** Adds the given task to the cheapest queue from the calling thread. */
+        void enqueue(final Runnable task) {
+            final Thread current = Thread.currentThread();
+            if (current == mThread) {
+                mLocal.add(task);
+                return;
+            }
+
+            // only the producer's own thread is ever its group's current shard, which keeps every
+            // inbound queue to a single producer
+            final Shard producer = CURRENT.get();
+            if ((producer != null) && (producer.mGroup == mGroup)) {
+                mInbound[producer.mIndex].offer(task);
+            } else {
+                mForeign.add(task);
+            }
+            if (mParked) {
+                LockSupport.unpark(mThread);
+            }
+        }
+
+        void shutdown() {
+            mShutdown = true;
+            enqueue(this::halt);
+        }
+
+        /**
+         * Stops all actors of the shard and, once no task is left, the thread. Runs on the shard's
+         * thread after {@link #shutdown}, which keeps any new tasks from being sent.
+         */
+        private void halt() {
+            receive();
+            for (final ShardActor<?> actor : new ArrayList<>(mActors)) {
+                actor.stop();
+            }
+            if (mLocal.isEmpty()) {
+                mRunning = false;
+            } else {
+                mLocal.add(this::halt);
+            }
+        }
+
+        /**
+         * Executes tasks until shut down. Exceptions thrown by tasks are {@link Uncaught#report
+         * reported} and the thread continues with the next task, since all actors of the shard
+         * depend on it.
+         */
+        private void work() {
+            CURRENT.set(this);
+            while (mRunning) {
+                final Runnable task = mLocal.poll();
+                if (task != null) {
+                    try {
+                        task.run();
+                    } catch (final RuntimeException e) {
+                        Uncaught.report(e);
+                    }
+                } else if (!receive()) {
+                    idle();
+                }
+            }
+        }
+
+        /**
+         * Moves all {@link Runnable Runnables} sent by other threads to the local queue.
+         *
+         * @return {@code true} if any were moved, otherwise {@code false}.
+         */
+        boolean receive() {
+            boolean received = false;
+            for (final SpscQueue<Runnable> inbound : mInbound) {
+                if (inbound != null) {
+                    for (Runnable task = inbound.poll(); task != null; task = inbound.poll()) {
+                        mLocal.add(task);
+                        received = true;
+                    }
+                }
+            }
+            for (Runnable task = mForeign.poll(); task != null; task = mForeign.poll()) {
+                mLocal.add(task);
+                received = true;
+            }
+            return received;
+        }
+
+        private boolean isEmpty() {
+            for (final SpscQueue<Runnable> inbound : mInbound) {
+                if ((inbound != null) && !inbound.isEmpty()) {
+                    return false;
+                }
+            }
+            return mForeign.isEmpty();
+        }
+
+        /** Spins for a short while and then parks until another thread sends a task. */
+        private void idle() {
+            for (int i = 0; i < SPINS; i++) {
+                if (!isEmpty()) {
+                    return;
+                }
+                Spin.onSpinWait();
+            }
+
+            mParked = true;
+            // the queues have to be checked again after announcing the park, since a sender
+            // that did not see the announcement will not unpark the thread
+            if (isEmpty()) {
+                LockSupport.park(this);
+            }
+            mParked = false;
+        }
+    }
+
+    /**
+     * A {@link Channel} that executes {@link Runnable Runnables} on its shard's thread. It is
+     * stopped once the shard is shut down.
+     */
+    private static final class ShardChannel implements Channel<Runnable> {
+
+        private final Shard mShard;
+        private volatile boolean mStopped = false;
+
+        ShardChannel(final Shard shard) {
+            mShard = shard;
+        }
+
+        @Override
+        public boolean send(final Runnable task) {
+            return !mStopped && mShard.send(task);
+        }
+
+        @Override
+        public void stop() {
+            mStopped = true;
+        }
+    }
+
+    /**
+     * A {@link Channel} that delivers messages to an {@link Actor} directly on its shard's thread.
+     *
+     * @param <M> the type of sent messages.
+     */
+    private static final class ShardActor<M> implements Channel<M> {
+
+        private final Shard mShard;
+        private final Actor<M> mActor;
+        private volatile boolean mStopped = false;
+        /** Touched only by the shard's thread. */
+        private boolean mStarted = false;
+        /** Touched only by the shard's thread. */
+        private boolean mFinished = false;
+
+        ShardActor(final Shard shard, final Actor<M> actor) {
+            mShard = shard;
+            mActor = actor;
+        }
+
+        @Override
+        public boolean send(final M message) {
+            return !mStopped && mShard.send(() -> deliver(message));
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * <p>The {@link Actor} is stopped on the shard's thread after all messages that were sent
+         * before the stop, from any thread, have been delivered.
+         */
+        @Override
+        public void stop() {
+            if (!mStopped) {
+                mStopped = true;
+                mShard.enqueue(this::terminate);
+            }
+        }
+
+        /**
+         * Starts the {@link Actor} unless it is already started. Runs on the shard's thread, before
+         * the first delivery even if that overtakes the start task, which may still wait in the
+         * queue of another thread.
+         */
+        void start() {
+            if (!mStarted) {
+                mStarted = true;
+                mShard.mActors.add(this);
+                mActor.onStart(this, mShard);
+            }
+        }
+
+        private void deliver(final M message) {
+            start();
+            if (!mFinished) {
+                mActor.onMessage(message);
+            }
+        }
+
+        /**
+         * Moves messages that other threads sent before the stop to the local queue and stops the
+         * {@link Actor} after them.
+         */
+        private void terminate() {
+            mShard.receive();
+            mShard.mLocal.add(this::finish);
+        }
+
+        private void finish() {
+            start();
+            if (!mFinished) {
+                mFinished = true;
+                mShard.mActors.remove(this);
+                mActor.onStop();
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * An unbounded queue for exactly one producer thread and one consumer thread.
+ *
+ * <p>The queue is a linked list with a sentinel head node. The producer only touches the tail and
+ * the consumer only touches the head, so neither side needs locks or compare-and-set; the single
+ * volatile write that links a new node publishes the element to the consumer.
+ *
+ * @param <E> the type of elements.
+ */
+final class SpscQueue<E> {
+
+    /** Touched only by the consumer. */
+    private Node<E> mHead = new Node<>(null);
+    /** Touched only by the producer. */
+    private Node<E> mTail = mHead;
+
+    /**
+     * Adds the given element to the queue. Must be called only by the producer.
+     *
+     * @param element the element.
+     */
+    void offer(final E element) {
+        final Node<E> node = new Node<>(element);
+        mTail.mNext = node;
+        mTail = node;
+    }
+
+    /**
+     * Removes the oldest element from the queue. Must be called only by the consumer.
+     *
+     * @return the oldest element, or {@code null} if the queue is empty.
+     */
+    @Nullable
+    E poll() {
+        final Node<E> next = mHead.mNext;
+        if (next == null) {
+            return null;
+        }
+
+        final E element = next.mElement;
+        next.mElement = null;
+        mHead = next;
+        return element;
+    }
+
+    /**
+     * Returns whether the queue is empty. Must be called only by the consumer.
+     *
+     * @return {@code true} if the queue is empty, otherwise {@code false}.
+     */
+    boolean isEmpty() {
+        return mHead.mNext == null;
+    }
+
+    private static final class Node<E> {
+
+        @Nullable
+        E mElement;
+        @Nullable
+        volatile Node<E> mNext;
+
+        Node(@Nullable final E element) {
+            mElement = element;
+        }
+    }
+}
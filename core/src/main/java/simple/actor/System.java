@@ -21,7 +21,10 @@ import net.jcip.annotations.GuardedBy;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static simple.actor.Checks.checkNotNull;
 
@@ -50,6 +53,12 @@ public final class System implements Context {
     private final Node<?, ActorChannel<?>> mHead = new Node<>(
             null, null, null);
 
+    private final Map<String, Runner> mRunners;
+    @Nullable
+    private final Interceptor mInterceptor;
+    @Nullable
+    private final Budget mBudget;
+
     @Nullable
     @GuardedBy("mLock")
     private Runner mRunner;
@@ -63,7 +72,14 @@ public final class System implements Context {
      * @param runner the {@code Runner} that will be used to deliver messages to {@code Actors}.
      */
     public System(final Runner runner) {
-        mRunner = runner;
+        this(new Builder(runner));
+    }
+
+    private System(final Builder builder) {
+        mRunner = builder.mRunner;
+        mRunners = new HashMap<>(builder.mRunners);
+        mInterceptor = builder.mInterceptor;
+        mBudget = builder.mBudget;
         mHead.mNext = mHead;
         mHead.mPrevious = mHead;
     }
@@ -79,17 +95,61 @@ public final class System implements Context {
      */
     @Override
     public <M> Channel<M> register(final Actor<M> actor) {
+        return register(actor, Options.DEFAULT);
+    }
+
+    /**
+     * Registers the given {@link Actor}, which blocks while processing messages (e.g. it does
+     * blocking I/O), with the system. Messages will be {@link Actor#onMessage delivered} to the
+     * {@code Actor} using the {@link Builder#blocking blocking} {@link Runner}, if one was
+     * configured; otherwise, using the common {@code Runner}. This is the same as registering the
+     * {@code Actor} with {@link Options#BLOCKING}.
+     *
+     * @param actor the {@code Actor} that should be registered with the system.
+     * @param <M>   the type of messages that {@code Actor} receives.
+     *
+     * @return a {@link Channel} to send messages to the {@code Actor}.
+     *
+     * @throws IllegalStateException if system is {@link #stop stopped}.
+     * @see #register(Actor)
+     */
+    public <M> Channel<M> registerBlocking(final Actor<M> actor) {
+        return register(actor, Options.BLOCKING);
+    }
+
+    /**
+     * Registers the given {@link Actor} with the system using the given {@link Options}. Messages
+     * will be {@link Actor#onMessage delivered} to the {@code Actor} using the {@link Runner}
+     * {@link Builder#runner configured} under the name in the {@code Options}, or the common
+     * {@code Runner} if the {@code Options} name none, and stored in a mailbox of the configured
+     * capacity while they wait to be delivered.
+     *
+     * @param actor   the {@code Actor} that should be registered with the system.
+     * @param options the {@code Options} of the registration.
+     * @param <M>     the type of messages that {@code Actor} receives.
+     *
+     * @return a {@link Channel} to send messages to the {@code Actor}.
+     *
+     * @throws IllegalStateException    if system is {@link #stop stopped}.
+     * @throws IllegalArgumentException if no {@code Runner} is configured under the name in the
+     *                                  {@code Options}.
+     * @see #register(Actor)
+     */
+    public <M> Channel<M> register(final Actor<M> actor, final Options options) {
+        checkNotNull(options, "options");
+
         final ActorChannel<M> channel;
         synchronized (mLock) {
             if (mRunner == null) {
                 throw new IllegalStateException("System is stopped");
             }
 
+            final Runner runner = runner(options.getRunner());
             final Node<?, ActorChannel<?>> last = checkNotNull(mHead.mPrevious, "last");
-            final Node<Runnable, ActorChannel<?>> node = new Node<>(mRunner.create(), last, mHead);
+            final Node<Runnable, ActorChannel<?>> node = new Node<>(runner.create(), last, mHead);
             last.mNext = node;
             mHead.mPrevious = node;
-            channel = new ActorChannel<>(actor, node, mPaused);
+            channel = new ActorChannel<>(actor, node, mInterceptor, mBudget, options, mPaused);
             node.set(channel);
         }
 
@@ -97,6 +157,25 @@ public final class System implements Context {
         return channel;
     }
 
+    /** Returns the {@link Runner} configured under the given name. */
+    @GuardedBy("mLock")
+    private Runner runner(@Nullable final String name) {
+        final Runner common = checkNotNull(mRunner, "runner");
+        if (name == null) {
+            return common;
+        }
+
+        final Runner runner = mRunners.get(name);
+        if (runner != null) {
+            return runner;
+        }
+        if (Options.BLOCKING_RUNNER.equals(name)) {
+            // blocking actors fall back to the common runner if there is no blocking one
+            return common;
+        }
+        throw new IllegalArgumentException("no runner named " + name);
+    }
+
     /**
      * Pauses {@link Actor#onMessage delivery} of messages to all {@link Actor Actors} registered
      * with the system. Clients can still send messages to registered {@code Actors}, but they wont
@@ -126,7 +205,9 @@ public final class System implements Context {
                 Node<?, ActorChannel<?>> channel = checkNotNull(mHead.mNext, "first");
                 while (channel != mHead) {
                     final Node<?, ActorChannel<?>> next = checkNotNull(channel.mNext, "next");
-                    channel.get().resume();
+                    if (!channel.get().mMigrating) {
+                        channel.get().resume();
+                    }
                     channel = next;
                 }
                 mPaused = false;
@@ -156,6 +237,218 @@ public final class System implements Context {
         }
     }
 
+    /**
+     * Migrates the given registered {@link Actor Actor's} {@link Channel} to the given {@link
+     * Runner#create runnable channel}, which will be used to deliver all future messages to the
+     * {@code Actor}.
+     *
+     * <p>No message is lost or reordered: messages that were already passed to the previous
+     * runnable channel are delivered first, while new messages are stored in-memory. Once the
+     * previous runnable channel has delivered all its messages, it is {@link Channel#stop stopped}
+     * and the stored messages are passed to the given runnable channel.
+     *
+     * @param actor  the {@code Channel} returned by {@link #register register}.
+     * @param target the runnable channel to migrate to.
+     *
+     * @return {@code true} if the {@code Actor} is registered with the system and will be
+     * migrated; otherwise {@code false}, in which case the target is left untouched.
+     */
+    public boolean migrate(final Channel<?> actor, final Channel<Runnable> target) {
+        synchronized (mLock) {
+            Node<?, ActorChannel<?>> node = checkNotNull(mHead.mNext, "first");
+            while (node != mHead) {
+                if (node.get() == actor) {
+                    migrate(node, target);
+                    return true;
+                }
+                node = checkNotNull(node.mNext, "next");
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Migrates the registered {@link Actor} to whose messages are delivered using the given current
+     * {@link Runner#create runnable channel} to the given target runnable channel.
+     *
+     * @param current the runnable channel currently used by the {@code Actor}.
+     * @param target  the runnable channel to migrate to.
+     *
+     * @return {@code true} if an {@code Actor} that uses the current runnable channel is registered
+     * with the system and will be migrated; otherwise {@code false}, in which case the target is
+     * left untouched.
+     *
+     * @see #migrate(Channel, Channel)
+     */
+    public boolean migrateFrom(final Channel<Runnable> current, final Channel<Runnable> target) {
+        synchronized (mLock) {
+            Node<?, ActorChannel<?>> node = checkNotNull(mHead.mNext, "first");
+            while (node != mHead) {
+                if (node.mChannel == current) {
+                    migrate(node, target);
+                    return true;
+                }
+                node = checkNotNull(node.mNext, "next");
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Sends the given message to a registered {@link Actor} only if there is room for it, which is
+     * how senders get backpressure from a {@link Options#isBounded bounded} mailbox or a {@link
+     * Budget}. Unlike {@link Channel#send}, which stores the message anyway once it has waited for
+     * the {@code Budget}, this method does not send the message if the mailbox is full or the
+     * {@code Budget} is still exhausted after its timeout. Neither case stops the {@link Channel}.
+     *
+     * @param actor   the {@code Channel} returned by {@link #register register}.
+     * @param message the message.
+     * @param <M>     the type of messages that {@code Actor} receives.
+     *
+     * @return {@code true} if the message has been sent; otherwise {@code false}, if there is no
+     * room for it or the {@code Channel} has been stopped.
+     *
+     * @throws IllegalArgumentException if the {@code Channel} was not returned by {@link #register
+     *                                  register}.
+     */
+    public static <M> boolean trySend(final Channel<M> actor, final M message) {
+        if (!(actor instanceof ActorChannel)) {
+            throw new IllegalArgumentException("channel is not registered with a system");
+        }
+        return ((ActorChannel<M>) actor).send(message, true /*bounded*/);
+    }
+
+    /**
+     * Replaces the runnable channel of the given node. The {@link ActorChannel} is paused before
+     * the runnable channel is replaced, so that no message can reach the new runnable channel
+     * while the previous one may still have messages to deliver. It stays paused until the
+     * previous runnable channel executes a fence, which is the last {@link Runnable} sent to it,
+     * and is resumed afterwards unless the system is paused.
+     */
+    @GuardedBy("mLock")
+    private void migrate(final Node<?, ActorChannel<?>> node, final Channel<Runnable> target) {
+        @SuppressWarnings("unchecked")
+        final Node<Runnable, ActorChannel<?>> runnable = (Node<Runnable, ActorChannel<?>>) node;
+        final ActorChannel<?> channel = node.get();
+        if (channel.mMigrating) {
+            // the channel is still paused and the fence is on its way through a previous runnable
+            // channel
+            runnable.replace(target).stop();
+            return;
+        }
+
+        channel.pause();
+        final Channel<Runnable> previous = runnable.replace(target);
+        channel.mMigrating = true;
+        final Runnable fence = () -> {
+            synchronized (mLock) {
+                channel.mMigrating = false;
+                if (!mPaused) {
+                    channel.resume();
+                }
+            }
+        };
+        if (!previous.send(fence)) {
+            fence.run();
+        }
+        previous.stop();
+    }
+
+    /**
+     * A builder of {@link System Systems} with optional configuration.
+     *
+     * <p>To keep {@link Actor Actors} that do blocking I/O from delaying all other {@code Actors},
+     * configure a {@link #blocking blocking} {@link Runner} and register those {@code Actors} with
+     * {@link System#registerBlocking registerBlocking}. For example, the common {@code Runner} can
+     * be an {@link ElasticRunner} whose size is fixed to the number of processors and the blocking
+     * {@code Runner} an {@code ElasticRunner} with no core threads and a large maximum size. The
+     * two {@code ElasticRunners} are then sized and observed independently.
+     *
+     * <p>More generally, any number of {@code Runners} can be configured under different {@link
+     * #runner names} and selected for each {@code Actor} with {@link Options} when it is {@link
+     * System#register(Actor, Options) registered}.
+     */
+    public static final class Builder {
+
+        private final Runner mRunner;
+        private final Map<String, Runner> mRunners = new HashMap<>();
+        @Nullable
+        private Interceptor mInterceptor;
+        @Nullable
+        private Budget mBudget;
+
+        /**
+         * Creates a builder of a system that will use given {@link Runner} to deliver messages to
+         * {@link Actor Actors}.
+         *
+         * @param runner the {@code Runner} that will be used to deliver messages to {@code
+         *               Actors}.
+         */
+        public Builder(final Runner runner) {
+            mRunner = runner;
+        }
+
+        /**
+         * Sets the {@link Runner} that will be used to deliver messages to {@link Actor Actors}
+         * that were {@link System#registerBlocking registered as blocking}.
+         *
+         * @param runner the blocking {@code Runner}.
+         *
+         * @return this builder.
+         */
+        public Builder blocking(final Runner runner) {
+            return runner(Options.BLOCKING_RUNNER, runner);
+        }
+
+        /**
+         * Sets the {@link Runner} that will be used to deliver messages to {@link Actor Actors}
+         * that were {@link System#register(Actor, Options) registered} with {@link Options} that
+         * name it.
+         *
+         * @param name   the name of the {@code Runner}.
+         * @param runner the {@code Runner}.
+         *
+         * @return this builder.
+         */
+        public Builder runner(final String name, final Runner runner) {
+            checkNotNull(name, "name");
+            checkNotNull(runner, "runner");
+            mRunners.put(name, runner);
+            return this;
+        }
+
+        /**
+         * Sets the {@link Interceptor} that will wrap every {@link Actor#onMessage delivery} of a
+         * message. If an {@code Interceptor} was already set, the given one will run inside it.
+         *
+         * @param interceptor the {@code Interceptor}.
+         *
+         * @return this builder.
+         */
+        public Builder interceptor(final Interceptor interceptor) {
+            mInterceptor = (mInterceptor == null) ? interceptor : mInterceptor.andThen(interceptor);
+            return this;
+        }
+
+        /**
+         * Sets the {@link Budget} from which all messages sent to {@link Actor Actors} take their
+         * size until they are {@link Actor#onMessage delivered}.
+         *
+         * @param budget the {@code Budget}.
+         *
+         * @return this builder.
+         */
+        public Builder budget(final Budget budget) {
+            mBudget = budget;
+            return this;
+        }
+
+        /** Creates a running system with the current configuration. */
+        public System build() {
+            return new System(this);
+        }
+    }
+
     /**
      * A pausable {@link Channel} that {@link Actor#onMessage delivers} messages to an {@link Actor}
      * using a {@link Runner#create runnable channel}.
@@ -180,24 +473,45 @@ public final class System implements Context {
 
         private final Actor<M> mActor;
         private final Channel<Runnable> mChannel;
+        @Nullable
+        private final Interceptor mInterceptor;
+        @Nullable
+        private final Budget mBudget;
+        /** The number of stored messages, if the mailbox is bounded; otherwise {@code null}. */
+        @Nullable
+        private final AtomicInteger mStored;
+        private final int mCapacity;
         private final Mailbox<Runnable> mMailbox;
 
+        /** If {@code Channel} is being migrated. Guarded by the {@link System System's} lock. */
+        boolean mMigrating = false;
+
         /**
          * Creates a pausable {@link Channel} that will use given {@link Runner#create runnable
          * channel} to {@link Actor#onMessage deliver} messages to given {@link Actor}.
          *
-         * @param actor   the {@code Actor} that will receive all sent messages.
-         * @param channel the runnable channel that will be used to deliver messages to the {@code
-         *                Actor}.
-         * @param paused  if {@code Channel} is created in {@link #pause paused} or {@link #resume
-         *                running} state.
+         * @param actor       the {@code Actor} that will receive all sent messages.
+         * @param channel     the runnable channel that will be used to deliver messages to the
+         *                    {@code Actor}.
+         * @param interceptor the optional {@link Interceptor} that wraps every delivery.
+         * @param budget      the optional {@link Budget} from which sent messages take their size.
+         * @param options     the {@link Options} that configure the mailbox.
+         * @param paused      if {@code Channel} is created in {@link #pause paused} or {@link
+         *                    #resume running} state.
          */
         ActorChannel(final Actor<M> actor,
                      final Channel<Runnable> channel,
+                     @Nullable final Interceptor interceptor,
+                     @Nullable final Budget budget,
+                     final Options options,
                      final boolean paused) {
             mActor = actor;
             mChannel = channel;
-            mMailbox = new Mailbox<>(paused ? null : channel);
+            mInterceptor = interceptor;
+            mBudget = budget;
+            mStored = options.isBounded() ? new AtomicInteger(0 /*initial value*/) : null;
+            mCapacity = options.getCapacity();
+            mMailbox = new Mailbox<>(paused ? null : channel, mCapacity);
         }
 
         /**
@@ -211,16 +525,78 @@ public final class System implements Context {
          *
          * <p>If message delivery using the runnable channel fails, {@code Channel} will be
          * immediately {@link #stop stopped} and removed from the {@link System}.
+         *
+         * <p>If the {@code System} has an {@link Interceptor}, the delivery will be wrapped by it.
+         *
+         * <p>If the {@code System} has a {@link Budget}, the message takes its size from the {@code
+         * Budget} until it is delivered. If the {@code Budget} is exhausted, the send waits up to
+         * its timeout and then takes the size anyway, so that {@code false} is still returned only
+         * by a stopped {@code Channel}. Likewise, a message sent to a full {@link Options#isBounded
+         * bounded} mailbox is stored anyway. {@link System#trySend} rejects such messages instead.
          */
         @Override
         public boolean send(final M message) {
-            final boolean success = mMailbox.send(() -> mActor.onMessage(message));
+            return send(message, false /*bounded*/);
+        }
+
+        /**
+         * Sends the given message.
+         *
+         * @param message the message.
+         * @param bounded if the message is rejected when there is no room for it in the mailbox or
+         *                the {@link Budget}.
+         *
+         * @return {@code true} if the message has been sent; otherwise {@code false}.
+         */
+        boolean send(final M message, final boolean bounded) {
+            final AtomicInteger stored = mStored;
+            if ((stored != null) && (stored.incrementAndGet() > mCapacity) && bounded) {
+                stored.decrementAndGet();
+                return false;
+            }
+            final Budget budget = mBudget;
+            final long size = (budget == null) ? 0 : budget.sizeOf(message);
+            if ((budget != null) && !budget.acquire(mActor, size, !bounded)) {
+                if (stored != null) {
+                    stored.decrementAndGet();
+                }
+                return false;
+            }
+
+            final Interceptor interceptor = mInterceptor;
+            final Runnable delivery = ((stored == null) && (budget == null))
+                    ? () -> mActor.onMessage(message)
+                    : () -> {
+                        final boolean entered = (budget != null) && budget.enter();
+                        try {
+                            mActor.onMessage(message);
+                        } finally {
+                            if (entered) {
+                                budget.exit();
+                            }
+                            release(size);
+                        }
+                    };
+            final boolean success = mMailbox.send((interceptor == null)
+                    ? delivery
+                    : () -> interceptor.intercept(mActor, delivery));
             if (!success) {
+                release(size);
                 stop();
             }
             return success;
         }
 
+        /** Returns a delivered or rejected message's place in the mailbox and the budget. */
+        private void release(final long size) {
+            if (mStored != null) {
+                mStored.decrementAndGet();
+            }
+            if (mBudget != null) {
+                mBudget.release(mActor, size);
+            }
+        }
+
         /**
          * {@inheritDoc}
          *
@@ -277,7 +653,7 @@ public final class System implements Context {
      */
     private final class Node<M, V> implements Channel<M> {
 
-        private final Channel<M> mChannel;
+        private volatile Channel<M> mChannel;
 
         @Nullable
         private V mValue;
@@ -321,6 +697,19 @@ public final class System implements Context {
             mChannel.stop();
         }
 
+        /**
+         * Replaces the delegate {@link Channel}.
+         *
+         * @param channel the new delegate {@code Channel}.
+         *
+         * @return the previous delegate {@code Channel}.
+         */
+        Channel<M> replace(final Channel<M> channel) {
+            final Channel<M> previous = mChannel;
+            mChannel = channel;
+            return previous;
+        }
+
         /** Sets the value of this node. */
         void set(final V value) {
             mValue = value;
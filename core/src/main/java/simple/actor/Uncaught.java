@@ -0,0 +1,38 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor;
+
+/**
+ * Reports exceptions thrown by {@link Runnable Runnables} that are executed on the threads owned
+ * by a {@link Runner}.
+ */
+final class Uncaught {
+
+    /**
+     * Passes the given exception to the {@link Thread.UncaughtExceptionHandler} of the current
+     * thread without terminating the thread. A runner thread is shared by many {@link Channel
+     * Channels}, so it has to keep executing them even if one of them fails.
+     *
+     * @param e the exception thrown by a {@code Runnable}.
+     */
+    static void report(final RuntimeException e) {
+        final Thread thread = Thread.currentThread();
+        thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+    }
+
+    private Uncaught() {}
+}
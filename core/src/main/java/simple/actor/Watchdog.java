@@ -0,0 +1,184 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An {@link Interceptor} that detects {@link Actor#onMessage deliveries} of messages that run
+ * longer than a threshold (e.g. because an {@link Actor} is blocked on I/O), reports them, and
+ * temporarily adds capacity to the {@link Runner} so that other {@code Actors} are not starved.
+ *
+ * <p>Deliveries are checked only when {@link #check} is called, which is usually done periodically
+ * by a {@link java.util.concurrent.ScheduledExecutorService}. Every stalled delivery is reported
+ * once to the given {@link Channel} and causes the {@link Compensator} to add capacity, which is
+ * released once the delivery finishes.
+ */
+public final class Watchdog implements Interceptor {
+
+    private final long mThreshold;
+    private final Channel<? super Stall> mReports;
+    private final Compensator mCompensator;
+
+    private final Map<Thread, Delivery> mRunning = new ConcurrentHashMap<>();
+
+    /**
+     * Creates an {@link Interceptor} that will detect deliveries that run longer than the given
+     * threshold.
+     *
+     * @param threshold   the time after which a running delivery is considered stalled.
+     * @param unit        the unit of the threshold.
+     * @param reports     the {@link Channel} to which stalled deliveries will be reported.
+     * @param compensator the {@link Compensator} that will add capacity for stalled deliveries.
+     */
+    public Watchdog(final long threshold,
+                    final TimeUnit unit,
+                    final Channel<? super Stall> reports,
+                    final Compensator compensator) {
+        mThreshold = unit.toNanos(threshold);
+        mReports = reports;
+        mCompensator = compensator;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Deliveries may be nested on the same thread (e.g. when an {@link Actor} sends a message
+     * that is delivered synchronously); the innermost delivery is watched until it finishes, and
+     * the enclosing one is watched again afterwards.
+     */
+    @Override
+    public void intercept(final Actor<?> actor, final Runnable delivery) {
+        final Thread thread = Thread.currentThread();
+        final Delivery running = new Delivery(actor);
+        final Delivery enclosing = mRunning.put(thread, running);
+        try {
+            delivery.run();
+        } finally {
+            if (enclosing == null) {
+                mRunning.remove(thread);
+            } else {
+                mRunning.put(thread, enclosing);
+            }
+            if (running.finish()) {
+                mCompensator.release();
+            }
+        }
+    }
+
+    /** Reports and compensates all deliveries that have been running longer than the threshold. */
+    public void check() {
+        final long now = java.lang.System.nanoTime();
+        for (final Map.Entry<Thread, Delivery> entry : mRunning.entrySet()) {
+            final Thread thread = entry.getKey();
+            final Delivery delivery = entry.getValue();
+            final long duration = now - delivery.mSince;
+            if ((duration >= mThreshold) && delivery.stall()) {
+                mCompensator.compensate();
+                mReports.send(new Stall(delivery.mActor, thread, thread.getStackTrace(), duration));
+            }
+        }
+    }
+
+    /** Common interface for adding and releasing capacity of a {@link Runner}. */
+    public interface Compensator {
+
+        /** Temporarily adds capacity for one stalled delivery. */
+        void compensate();
+
+        /** Releases capacity that was added for one stalled delivery that has finished. */
+        void release();
+    }
+
+    /** A report of a stalled delivery. */
+    public static final class Stall {
+
+        private final Actor<?> mActor;
+        private final Thread mThread;
+        private final StackTraceElement[] mStackTrace;
+        private final long mDuration;
+
+        Stall(final Actor<?> actor,
+              final Thread thread,
+              final StackTraceElement[] stackTrace,
+              final long duration) {
+            mActor = actor;
+            mThread = thread;
+            mStackTrace = stackTrace;
+            mDuration = duration;
+        }
+
+        /** Returns the {@link Actor} to which the message was being delivered. */
+        public Actor<?> getActor() {
+            return mActor;
+        }
+
+        /** Returns the thread on which the message was being delivered. */
+        public Thread getThread() {
+            return mThread;
+        }
+
+        /** Returns the stack trace of the thread at the moment the stall was detected. */
+        public StackTraceElement[] getStackTrace() {
+            return mStackTrace.clone();
+        }
+
+        /** Returns how long the delivery had been running when the stall was detected. */
+        public long getDuration(final TimeUnit unit) {
+            return unit.convert(mDuration, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /** A running delivery that can be stalled at most once. */
+    private static final class Delivery {
+
+        final Actor<?> mActor;
+        final long mSince = java.lang.System.nanoTime();
+
+        private boolean mStalled = false;
+        private boolean mFinished = false;
+
+        Delivery(final Actor<?> actor) {
+            mActor = actor;
+        }
+
+        /**
+         * Marks the delivery as stalled.
+         *
+         * @return {@code true} if delivery is still running and has not been stalled before.
+         */
+        synchronized boolean stall() {
+            if (mStalled || mFinished) {
+                return false;
+            }
+            mStalled = true;
+            return true;
+        }
+
+        /**
+         * Marks the delivery as finished.
+         *
+         * @return {@code true} if delivery has been stalled.
+         */
+        synchronized boolean finish() {
+            mFinished = true;
+            return mStalled;
+        }
+    }
+}
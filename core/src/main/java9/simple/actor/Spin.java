@@ -0,0 +1,32 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor;
+
+/**
+ * Helpers for busy-waiting threads.
+ *
+ * <p>This is the Java 9 version of the class, packaged in the multi-release JAR.
+ */
+final class Spin {
+
+    /** Signals that the current thread is busy-waiting. */
+    static void onSpinWait() {
+        Thread.onSpinWait();
+    }
+
+    private Spin() {}
+}
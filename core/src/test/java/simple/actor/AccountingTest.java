@@ -0,0 +1,99 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor;
+
+import org.junit.runner.RunWith;
+
+import java.util.List;
+
+import alioli.Scenario;
+import simple.actor.testing.SameThreadRunner;
+import simple.actor.testing.SpyActor;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/** Tests for {@link Accounting}. */
+@RunWith(Scenario.Runner.class)
+public class AccountingTest extends Scenario {
+    {
+        subject("system with accounting of every delivery", () -> {
+            final Accounting accounting = new Accounting(1 /*period*/);
+            final System system = new System.Builder(new SameThreadRunner())
+                    .interceptor(accounting)
+                    .build();
+
+            when("messages are delivered to actors", () -> {
+                final Channel<Integer> allocating = system.register(new Allocating());
+                final Channel<Integer> spy = system.register(new SpyActor<>());
+                allocating.send(1 << 20);
+                allocating.send(1 << 20);
+                spy.send(1);
+
+                should("report usage per actor", () -> {
+                    final List<Accounting.Usage> top =
+                            accounting.getTopActors(1, Accounting.Usage.BY_ALLOCATED_BYTES);
+
+                    assertThat(top).hasSize(1);
+                    assertThat(top.get(0).getName()).startsWith(Allocating.class.getName());
+                    assertThat(top.get(0).getDeliveries()).isEqualTo(2);
+                });
+
+                should("report usage per class of actors", () -> {
+                    final List<Accounting.Usage> top =
+                            accounting.getTopClasses(10, Accounting.Usage.BY_ALLOCATED_BYTES);
+
+                    assertThat(top).hasSize(2);
+                    assertThat(top.get(0).getName()).isEqualTo(Allocating.class.getName());
+                    assertThat(top.get(1).getName()).isEqualTo(SpyActor.class.getName());
+                });
+            });
+        });
+
+        subject("accounting of every other delivery", () -> {
+            final Accounting accounting = new Accounting(2 /*period*/);
+            final Actor<Object> actor = new SpyActor<>();
+
+            when("deliveries are intercepted", () -> {
+                final int[] delivered = {0};
+                for (int i = 0; i < 4; i++) {
+                    accounting.intercept(actor, () -> delivered[0]++);
+                }
+
+                should("run all deliveries", () -> {
+                    assertThat(delivered[0]).isEqualTo(4);
+                });
+
+                should("estimate the number of deliveries", () -> {
+                    final List<Accounting.Usage> top =
+                            accounting.getTopClasses(1, Accounting.Usage.BY_CPU_TIME);
+
+                    assertThat(top.get(0).getDeliveries()).isEqualTo(4);
+                });
+            });
+        });
+    }
+
+    private static final class Allocating extends Actor<Integer> {
+
+        byte[] mLast;
+
+        @Override
+        protected void onMessage(final Integer size) {
+            mLast = new byte[size];
+        }
+    }
+}
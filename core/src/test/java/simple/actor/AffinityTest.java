@@ -0,0 +1,145 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor;
+
+import org.junit.runner.RunWith;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import alioli.Scenario;
+import simple.actor.testing.Threads;
+
+import static alioli.Asserts.assertThrows;
+import static com.google.common.truth.Truth.assertThat;
+
+/** Tests for {@link Affinity}. */
+@RunWith(Scenario.Runner.class)
+public class AffinityTest extends Scenario {
+    {
+        subject("affinity of the current thread", () -> {
+            final BitSet current = Affinity.getCurrent();
+
+            should("be known if pinning is supported", () -> {
+                if (Affinity.isSupported()) {
+                    assertThat(current).isNotNull();
+                    assertThat(current.isEmpty()).isFalse();
+                } else {
+                    assertThat(current).isNull();
+                }
+            });
+        });
+
+        subject("factory with a single available cpu", () -> {
+            final BitSet current = Affinity.getCurrent();
+            final BitSet cpu = new BitSet();
+            cpu.set((current == null) ? 0 : current.nextSetBit(0));
+            final Affinity affinity = new Affinity(Threads::newDaemon,
+                                                   Collections.singletonList(cpu));
+
+            when("a thread is started", () -> {
+                final CountDownLatch started = new CountDownLatch(1);
+                final CountDownLatch finish = new CountDownLatch(1);
+                final Thread thread = affinity.newThread(() -> {
+                    started.countDown();
+                    Threads.await(finish);
+                });
+                thread.start();
+                Threads.await(started);
+
+                should("report its placement", () -> {
+                    final List<Affinity.Placement> placements = affinity.getPlacements();
+                    assertThat(placements).hasSize(1);
+
+                    final Affinity.Placement placement = placements.get(0);
+                    assertThat(placement.getThread()).isSameAs(thread);
+                    assertThat(placement.getRequested()).isEqualTo(cpu);
+                    assertThat(placement.isPinned()).isEqualTo(Affinity.isSupported());
+                    if (Affinity.isSupported()) {
+                        assertThat(placement.getEffective()).isEqualTo(cpu);
+                    }
+                    finish.countDown();
+                });
+
+                and("finished", () -> {
+                    finish.countDown();
+                    thread.join(TimeUnit.SECONDS.toMillis(5));
+
+                    should("not report its placement anymore", () -> {
+                        assertThat(affinity.getPlacements()).isEmpty();
+                    });
+                });
+            });
+
+            should("run a runner's threads", () -> {
+                final DeadlineRunner runner = new DeadlineRunner(1 /*thread*/, 0, TimeUnit.SECONDS,
+                                                                 affinity);
+                final CountDownLatch done = new CountDownLatch(1);
+                runner.create().send(done::countDown);
+
+                assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+                runner.shutdown();
+            });
+        });
+
+        subject("factory with an unavailable cpu", () -> {
+            final BitSet cpu = new BitSet();
+            cpu.set(1023);
+            final Affinity affinity = new Affinity(Threads::newDaemon,
+                                                   Collections.singletonList(cpu));
+
+            should("still run the thread without pinning it", () -> {
+                final CountDownLatch started = new CountDownLatch(1);
+                final CountDownLatch finish = new CountDownLatch(1);
+                affinity.newThread(() -> {
+                    started.countDown();
+                    Threads.await(finish);
+                }).start();
+                Threads.await(started);
+
+                final Affinity.Placement placement = affinity.getPlacements().get(0);
+                assertThat(placement.isPinned()).isFalse();
+                finish.countDown();
+            });
+        });
+
+        subject("cpu list", () -> {
+            should("be parsed", () -> {
+                final BitSet expected = new BitSet();
+                expected.set(0, 3);
+                expected.set(5);
+
+                assertThat(Affinity.parse("0-2, 5")).isEqualTo(expected);
+            });
+
+            should("fail to be parsed if malformed", () -> {
+                assertThat(assertThrows(() -> Affinity.parse("0-x")))
+                        .isInstanceOf(IllegalArgumentException.class);
+                assertThat(assertThrows(() -> Affinity.parse("3-1")))
+                        .isInstanceOf(IllegalArgumentException.class);
+            });
+        });
+
+        should("not be created without cpu sets", () -> {
+            assertThat(assertThrows(() -> new Affinity(Collections.emptyList())))
+                    .isInstanceOf(IllegalArgumentException.class);
+        });
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor;
+
+import org.junit.runner.RunWith;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+
+import alioli.Scenario;
+import simple.actor.testing.SameThreadRunner;
+import simple.actor.testing.SpyChannel;
+import simple.actor.testing.Threads;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/** Tests for {@link Agent}. */
+@RunWith(Scenario.Runner.class)
+public class AgentTest extends Scenario {
+    {
+        subject("agent", () -> {
+            final Agent<Integer> agent = new Agent<>(new System(new SameThreadRunner()), 0);
+
+            should("return the initial value", () -> {
+                assertThat(agent.get()).isEqualTo(0);
+            });
+
+            should("apply updates in order", () -> {
+                assertThat(agent.send(value -> value + 1)).isTrue();
+                assertThat(agent.send(value -> value * 10)).isTrue();
+
+                assertThat(agent.get()).isEqualTo(10);
+            });
+
+            should("send the updated value", () -> {
+                final SpyChannel<Integer> updated = new SpyChannel<>();
+                agent.send(value -> value + 1, updated);
+
+                assertThat(updated.getSentMessages()).containsExactly(1);
+            });
+
+            and("stopped", () -> {
+                agent.send(value -> value + 1);
+                agent.stop();
+
+                should("fail to send an update", () -> {
+                    assertThat(agent.send(value -> value + 1)).isFalse();
+                });
+
+                should("still return the last value", () -> {
+                    assertThat(agent.get()).isEqualTo(1);
+                });
+            });
+        });
+
+        subject("agent with pending updates", () -> {
+            final Queue<Runnable> pending = new ArrayDeque<>();
+            final Agent<String> agent = new Agent<>(new System(new ExecutorRunner(pending::add)),
+                                                    "initial");
+            agent.send(value -> "updated");
+
+            should("return the last published value without waiting", () -> {
+                assertThat(agent.get()).isEqualTo("initial");
+            });
+
+            should("publish the value once the update is applied", () -> {
+                while (!pending.isEmpty()) {
+                    pending.remove().run();
+                }
+
+                assertThat(agent.get()).isEqualTo("updated");
+            });
+        });
+
+        subject("agent updated from many threads", () -> {
+            final DeadlineRunner runner = new DeadlineRunner(4, 0, java.util.concurrent.TimeUnit
+                    .MILLISECONDS, Threads::newDaemon);
+            final Agent<Integer> agent = new Agent<>(new System(runner), 0);
+
+            should("apply every update exactly once", () -> {
+                final CountDownLatch done = new CountDownLatch(4000);
+                final Channel<Integer> counted = new Channel<Integer>() {
+                    @Override
+                    public boolean send(final Integer message) {
+                        done.countDown();
+                        return true;
+                    }
+
+                    @Override
+                    public void stop() {}
+                };
+                final Thread[] threads = new Thread[4];
+                for (int i = 0; i < threads.length; i++) {
+                    threads[i] = Threads.newDaemon(() -> {
+                        for (int j = 0; j < 1000; j++) {
+                            agent.send(value -> value + 1, counted);
+                        }
+                    });
+                    threads[i].start();
+                }
+
+                Threads.await(done);
+                assertThat(agent.get()).isEqualTo(4000);
+                runner.shutdown();
+            });
+        });
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor;
+
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import alioli.Scenario;
+import simple.actor.testing.SpyChannel;
+import simple.actor.testing.Threads;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/** Tests for {@link Batching}. */
+@RunWith(Scenario.Runner.class)
+public class BatchingTest extends Scenario {
+    {
+        subject("batching channel", () -> {
+            final ScheduledExecutorService timer =
+                    Executors.newSingleThreadScheduledExecutor(Threads::newDaemon);
+            final SpyChannel<List<String>> downstream = new SpyChannel<>();
+            final Batching<String> channel =
+                    new Batching<>(downstream, 3 /*size*/, 1, TimeUnit.HOURS, timer);
+
+            should("not send a batch before it is full", () -> {
+                assertThat(channel.send("first")).isTrue();
+                assertThat(channel.send("second")).isTrue();
+
+                assertThat(downstream.getSentMessages()).isEmpty();
+            });
+
+            should("send a batch when it is full", () -> {
+                channel.send("first");
+                channel.send("second");
+                channel.send("third");
+                channel.send("fourth");
+
+                assertThat(downstream.getSentMessages())
+                        .containsExactly(Arrays.asList("first", "second", "third"));
+            });
+
+            and("stopped", () -> {
+                channel.send("first");
+                channel.stop();
+
+                should("send the remaining messages", () -> {
+                    assertThat(downstream.getSentMessages())
+                            .containsExactly(Collections.singletonList("first"));
+                });
+
+                should("stop the downstream channel", () -> {
+                    assertThat(downstream.isStopped()).isTrue();
+                });
+
+                should("fail to send a message", () -> {
+                    assertThat(channel.send("second")).isFalse();
+                });
+            });
+
+            and("downstream channel is stopped", () -> {
+                downstream.stop();
+
+                should("fail to send a full batch", () -> {
+                    channel.send("first");
+                    channel.send("second");
+
+                    assertThat(channel.send("third")).isFalse();
+                    assertThat(channel.send("fourth")).isFalse();
+                });
+            });
+        });
+
+        subject("batching channel with a short linger time", () -> {
+            final ScheduledExecutorService timer =
+                    Executors.newSingleThreadScheduledExecutor(Threads::newDaemon);
+            final SpyChannel<List<String>> downstream = new SpyChannel<>();
+            final Batching<String> channel =
+                    new Batching<>(downstream, 100 /*size*/, 10, TimeUnit.MILLISECONDS, timer);
+
+            should("send a batch after the linger time", () -> {
+                channel.send("first");
+                channel.send("second");
+                timer.schedule(() -> {}, 20, TimeUnit.MILLISECONDS).get();
+
+                assertThat(downstream.getSentMessages())
+                        .containsExactly(Arrays.asList("first", "second"));
+            });
+
+            should("send a batch right away if the timer has been shut down", () -> {
+                timer.shutdown();
+                channel.send("first");
+
+                assertThat(downstream.getSentMessages())
+                        .containsExactly(Collections.singletonList("first"));
+            });
+        });
+    }
+}
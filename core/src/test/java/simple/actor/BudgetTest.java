@@ -0,0 +1,215 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor;
+
+import org.junit.runner.RunWith;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import alioli.Scenario;
+import simple.actor.testing.SpyActor;
+import simple.actor.testing.Threads;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/** Tests for {@link Budget}. */
+@RunWith(Scenario.Runner.class)
+public class BudgetTest extends Scenario {
+    {
+        subject("system with a budget for two messages", () -> {
+            final Queue<Runnable> pending = new ArrayDeque<>();
+            final Budget budget = new Budget(2, Budget.COUNT);
+            final System system = new System.Builder(new ExecutorRunner(pending::add))
+                    .budget(budget)
+                    .build();
+            final SpyActor<String> actor = new SpyActor<>();
+            final Channel<String> channel = system.register(actor);
+
+            should("accept messages within the budget", () -> {
+                assertThat(channel.send("first")).isTrue();
+                assertThat(channel.send("second")).isTrue();
+
+                assertThat(budget.getUsed()).isEqualTo(2L);
+                assertThat(budget.getOccupancy())
+                        .containsExactly(SpyActor.class, 2L);
+            });
+
+            and("budget is exhausted", () -> {
+                channel.send("first");
+                channel.send("second");
+
+                should("reject a message sent with trySend", () -> {
+                    assertThat(System.trySend(channel, "third")).isFalse();
+                });
+
+                should("not stop the actor when a message is rejected", () -> {
+                    System.trySend(channel, "third");
+                    while (!pending.isEmpty()) {
+                        pending.remove().run();
+                    }
+
+                    assertThat(actor.isStopped()).isFalse();
+                    assertThat(actor.getReceivedMessages()).containsExactly("first", "second");
+                });
+
+                should("exceed the budget for a message sent with send", () -> {
+                    assertThat(channel.send("third")).isTrue();
+                    assertThat(budget.getUsed()).isEqualTo(3L);
+
+                    while (!pending.isEmpty()) {
+                        pending.remove().run();
+                    }
+                    assertThat(actor.getReceivedMessages())
+                            .containsExactly("first", "second", "third").inOrder();
+                    assertThat(budget.getUsed()).isEqualTo(0L);
+                });
+
+                and("messages are delivered", () -> {
+                    while (!pending.isEmpty()) {
+                        pending.remove().run();
+                    }
+
+                    should("return their size to the budget", () -> {
+                        assertThat(budget.getUsed()).isEqualTo(0L);
+                        assertThat(budget.getOccupancy()).isEmpty();
+                    });
+
+                    should("accept messages again", () -> {
+                        assertThat(System.trySend(channel, "third")).isTrue();
+                    });
+                });
+            });
+        });
+
+        subject("system with a budget sized by a sizer", () -> {
+            final Queue<Runnable> pending = new ArrayDeque<>();
+            final Budget budget = new Budget(10, message -> ((String) message).length());
+            final System system = new System.Builder(new ExecutorRunner(pending::add))
+                    .budget(budget)
+                    .build();
+            final Channel<String> channel = system.register(new SpyActor<>());
+
+            should("use the estimated size of messages", () -> {
+                assertThat(System.trySend(channel, "12345678")).isTrue();
+                assertThat(System.trySend(channel, "123")).isFalse();
+                assertThat(System.trySend(channel, "12")).isTrue();
+
+                assertThat(budget.getUsed()).isEqualTo(10L);
+            });
+
+            should("accept a message larger than the budget when nothing is queued", () -> {
+                assertThat(System.trySend(channel, "12345678901")).isTrue();
+                assertThat(System.trySend(channel, "1")).isFalse();
+            });
+        });
+
+        subject("system with a blocking budget", () -> {
+            final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+            final Budget budget = new Budget(1, Budget.COUNT, 5, TimeUnit.SECONDS);
+            final System system = new System.Builder(new ExecutorRunner(pending::add, 1 /*batch*/))
+                    .budget(budget)
+                    .build();
+            final SpyActor<String> actor = new SpyActor<>();
+            final Channel<String> channel = system.register(actor);
+            channel.send("first");
+
+            should("wait until the budget is available", () -> {
+                final Thread sender = Thread.currentThread();
+                final Thread deliverer = Threads.newDaemon(() -> {
+                    // deliver only the first message, once the sender waits for the budget
+                    while (sender.getState() != Thread.State.TIMED_WAITING) {
+                        Thread.yield();
+                    }
+                    while (actor.getReceivedMessages().isEmpty()) {
+                        pending.remove().run();
+                    }
+                });
+                deliverer.start();
+
+                assertThat(channel.send("second")).isTrue();
+                deliverer.join();
+                assertThat(actor.getReceivedMessages()).containsExactly("first");
+
+                while (!pending.isEmpty()) {
+                    pending.remove().run();
+                }
+                assertThat(actor.getReceivedMessages()).containsExactly("first", "second")
+                        .inOrder();
+            });
+        });
+
+        subject("system with a blocking budget and a calling thread runner", () -> {
+            final Budget budget = new Budget(1, Budget.COUNT, 5, TimeUnit.SECONDS);
+            final System system = new System.Builder(new CallingThreadRunner())
+                    .budget(budget)
+                    .build();
+            final SpyActor<String> sink = new SpyActor<>();
+            final Channel<String> forward = system.register(sink);
+            final Queue<Boolean> sent = new ConcurrentLinkedQueue<>();
+            final Channel<String> channel = system.register(new Actor<String>() {
+                @Override
+                protected void onMessage(final String message) {
+                    sent.add(System.trySend(forward, message));
+                }
+            });
+
+            should("not wait for the budget while delivering a message", () -> {
+                final long start = java.lang.System.nanoTime();
+
+                assertThat(channel.send("message")).isTrue();
+                assertThat(java.lang.System.nanoTime() - start)
+                        .isLessThan(TimeUnit.SECONDS.toNanos(1));
+                assertThat(sent).containsExactly(false);
+                assertThat(sink.getReceivedMessages()).isEmpty();
+                assertThat(budget.getUsed()).isEqualTo(0L);
+            });
+        });
+
+        subject("system with a budget that times out", () -> {
+            final Budget budget = new Budget(1, Budget.COUNT, 10, TimeUnit.MILLISECONDS);
+            final System system = new System.Builder(new ExecutorRunner(runnable -> {}))
+                    .budget(budget)
+                    .build();
+            final Channel<String> channel = system.register(new SpyActor<>());
+            channel.send("first");
+
+            should("reject a message sent with trySend after the timeout", () -> {
+                final long start = java.lang.System.nanoTime();
+
+                assertThat(System.trySend(channel, "second")).isFalse();
+                assertThat(java.lang.System.nanoTime() - start)
+                        .isAtLeast(TimeUnit.MILLISECONDS.toNanos(10));
+                assertThat(budget.getOccupancy()).isEqualTo(
+                        Collections.singletonMap(SpyActor.class, 1L));
+            });
+
+            should("send a message with send after the timeout", () -> {
+                final long start = java.lang.System.nanoTime();
+
+                assertThat(channel.send("second")).isTrue();
+                assertThat(java.lang.System.nanoTime() - start)
+                        .isAtLeast(TimeUnit.MILLISECONDS.toNanos(10));
+                assertThat(budget.getOccupancy()).isEqualTo(
+                        Collections.singletonMap(SpyActor.class, 2L));
+            });
+        });
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor;
+
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import alioli.Scenario;
+import simple.actor.testing.SpyRunnable;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/** Tests for {@link CallingThreadRunner}. */
+@RunWith(Scenario.Runner.class)
+public class CallingThreadRunnerTest extends Scenario {
+    {
+        subject("created channel", () -> {
+            final Channel<Runnable> channel = new CallingThreadRunner().create();
+
+            when("a task is sent", () -> {
+                final SpyRunnable task = new SpyRunnable();
+                final boolean success = channel.send(task);
+
+                should("succeed to send it", () -> {
+                    assertThat(success).isTrue();
+                });
+
+                should("run it before returning", () -> {
+                    assertThat(task.getExecutedTimes()).isEqualTo(1);
+                });
+            });
+
+            should("run a task sent by another task after the sending task returns", () -> {
+                final List<String> executed = new ArrayList<>();
+                channel.send(() -> {
+                    channel.send(() -> executed.add("nested"));
+                    executed.add("outer");
+                });
+
+                assertThat(executed).containsExactly("outer", "nested").inOrder();
+            });
+
+            when("stopped", () -> {
+                channel.stop();
+
+                should("fail to send a task", () -> {
+                    final SpyRunnable task = new SpyRunnable();
+
+                    assertThat(channel.send(task)).isFalse();
+                    assertThat(task.getExecutedTimes()).isEqualTo(0);
+                });
+            });
+        });
+
+        subject("actors sending messages to each other", () -> {
+            final System system = new System(new CallingThreadRunner());
+            final int count = 100000;
+            final PingPong ping = new PingPong();
+            final PingPong pong = new PingPong();
+            final Channel<Integer> pingChannel = system.register(ping);
+            pong.mOther = pingChannel;
+            ping.mOther = system.register(pong);
+
+            should("deliver all messages without overflowing the stack", () -> {
+                pingChannel.send(count);
+
+                assertThat(ping.mReceived + pong.mReceived).isEqualTo(count + 1);
+            });
+        });
+    }
+
+    private static final class PingPong extends Actor<Integer> {
+
+        Channel<Integer> mOther;
+        int mReceived = 0;
+
+        @Override
+        protected void onMessage(final Integer remaining) {
+            mReceived++;
+            if (remaining > 0) {
+                mOther.send(remaining - 1);
+            }
+        }
+    }
+}
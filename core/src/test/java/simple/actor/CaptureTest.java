@@ -0,0 +1,152 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor;
+
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import alioli.Scenario;
+import simple.actor.testing.SpyChannel;
+
+import static alioli.Asserts.assertThrows;
+import static com.google.common.truth.Truth.assertThat;
+
+/** Tests for {@link Capture}. */
+@RunWith(Scenario.Runner.class)
+public class CaptureTest extends Scenario {
+    {
+        subject("capture", () -> {
+            final Path path = Files.createTempFile("capture", ".log");
+            path.toFile().deleteOnExit();
+            final SpyChannel<String> delegate = new SpyChannel<>();
+            final Capture<String> capture = new Capture<>(delegate, new StringCodec(), path);
+
+            should("pass messages on", () -> {
+                assertThat(capture.send("first")).isTrue();
+
+                assertThat(delegate.getSentMessages()).containsExactly("first");
+            });
+
+            and("stopped", () -> {
+                capture.send("first");
+                capture.send("");
+                capture.send("second");
+                capture.stop();
+
+                should("stop the delegate", () -> {
+                    assertThat(delegate.isStopped()).isTrue();
+                });
+
+                should("record messages in order", () -> {
+                    assertThat(read(path)).containsExactly("first", "", "second").inOrder();
+                });
+
+                should("record increasing times", () -> {
+                    try (final Capture.Reader<String> reader =
+                                 new Capture.Reader<>(path, new StringCodec())) {
+                        long previous = 0;
+                        while (reader.next()) {
+                            assertThat(reader.getTime(TimeUnit.NANOSECONDS)).isAtLeast(previous);
+                            previous = reader.getTime(TimeUnit.NANOSECONDS);
+                        }
+                    }
+                });
+
+                should("not have failed", () -> {
+                    assertThat(capture.getFailure()).isNull();
+                });
+            });
+
+            should("record messages larger than its buffer", () -> {
+                final char[] large = new char[100 * 1024];
+                Arrays.fill(large, 'a');
+                final List<String> messages = new ArrayList<>();
+                for (int i = 0; i < 1000; i++) {
+                    messages.add("message " + i);
+                }
+                messages.add(500, new String(large));
+                for (final String message : messages) {
+                    capture.send(message);
+                }
+                capture.stop();
+
+                assertThat(read(path)).containsExactlyElementsIn(messages).inOrder();
+            });
+
+            should("record flushed messages", () -> {
+                capture.send("first");
+                capture.flush();
+
+                assertThat(read(path)).containsExactly("first");
+            });
+
+            and("delegate is stopped", () -> {
+                delegate.stop();
+
+                should("not record messages", () -> {
+                    assertThat(capture.send("first")).isFalse();
+                    capture.stop();
+
+                    assertThat(read(path)).isEmpty();
+                });
+            });
+        });
+
+        should("fail to read a file that is not a log", () -> {
+            final Path path = Files.createTempFile("capture", ".log");
+            path.toFile().deleteOnExit();
+            Files.write(path, "hello world".getBytes(StandardCharsets.UTF_8));
+
+            assertThat(assertThrows(() -> new Capture.Reader<>(path, new StringCodec())))
+                    .isInstanceOf(IOException.class);
+        });
+    }
+
+    private static List<String> read(final Path path) throws IOException {
+        final List<String> messages = new ArrayList<>();
+        try (final Capture.Reader<String> reader = new Capture.Reader<>(path, new StringCodec())) {
+            while (reader.next()) {
+                messages.add(reader.getMessage());
+            }
+        }
+        return messages;
+    }
+
+    private static final class StringCodec implements Codec<String> {
+
+        @Override
+        public ByteBuffer encode(final String value) {
+            return ByteBuffer.wrap(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public String decode(final ByteBuffer buffer) {
+            final byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
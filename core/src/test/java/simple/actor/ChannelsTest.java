@@ -0,0 +1,180 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor;
+
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import alioli.Scenario;
+import simple.actor.testing.SpyChannel;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/** Tests for {@link Channels}. */
+@RunWith(Scenario.Runner.class)
+public class ChannelsTest extends Scenario {
+    {
+        subject("pipeline", () -> {
+            final SpyChannel<String> output = new SpyChannel<>();
+            final SpyChannel<Integer> rest = new SpyChannel<>();
+            final SpyChannel<Integer> copies = new SpyChannel<>();
+            final List<Integer> transformed = new ArrayList<>();
+            final Channel<String> input = Channels.<String>pipe()
+                    .map(Integer::parseInt)
+                    .filter(number -> number >= 0)
+                    .tee(copies)
+                    .partition(number -> (number % 2) == 0, rest)
+                    .map(number -> {
+                        transformed.add(number);
+                        return "#" + number;
+                    })
+                    .to(output);
+
+            should("send messages through all operators in order", () -> {
+                assertThat(input.send("2")).isTrue();
+                assertThat(input.send("-4")).isTrue();
+                assertThat(input.send("3")).isTrue();
+
+                assertThat(output.getSentMessages()).containsExactly("#2");
+                assertThat(rest.getSentMessages()).containsExactly(3);
+                assertThat(copies.getSentMessages()).containsExactly(2, 3).inOrder();
+                assertThat(transformed).containsExactly(2);
+            });
+
+            and("stopped", () -> {
+                input.stop();
+
+                should("stop all channels", () -> {
+                    assertThat(output.isStopped()).isTrue();
+                    assertThat(rest.isStopped()).isTrue();
+                    assertThat(copies.isStopped()).isTrue();
+                });
+
+                should("fail to send a message without invoking operators", () -> {
+                    assertThat(input.send("2")).isFalse();
+                    assertThat(copies.getSentMessages()).isEmpty();
+                });
+            });
+        });
+
+        subject("pipeline connected to a stopped channel", () -> {
+            final SpyChannel<Integer> output = new SpyChannel<>();
+            output.stop();
+            final Channel<Integer> input = Channels.<Integer>pipe()
+                    .map(number -> number + 1)
+                    .to(output);
+
+            should("fail to send a message", () -> {
+                assertThat(input.send(1)).isFalse();
+            });
+        });
+
+        subject("contramap", () -> {
+            final SpyChannel<Integer> output = new SpyChannel<>();
+            final Channel<String> input = Channels.contramap(output, String::length);
+
+            should("send transformed messages", () -> {
+                input.send("abc");
+
+                assertThat(output.getSentMessages()).containsExactly(3);
+            });
+        });
+
+        subject("filter", () -> {
+            final SpyChannel<String> output = new SpyChannel<>();
+            final Channel<String> input = Channels.filter(output, String::isEmpty);
+
+            should("send only matching messages", () -> {
+                assertThat(input.send("")).isTrue();
+                assertThat(input.send("abc")).isTrue();
+
+                assertThat(output.getSentMessages()).containsExactly("");
+            });
+
+            and("the channel is stopped", () -> {
+                output.stop();
+
+                should("fail to send any message once a matching one fails", () -> {
+                    assertThat(input.send("abc")).isTrue();
+                    assertThat(input.send("")).isFalse();
+                    assertThat(input.send("abc")).isFalse();
+                });
+            });
+        });
+
+        subject("partition", () -> {
+            final SpyChannel<String> matching = new SpyChannel<>();
+            final SpyChannel<String> rest = new SpyChannel<>();
+            final Channel<String> input = Channels.partition(String::isEmpty, matching, rest);
+
+            should("send messages to the channel they belong to", () -> {
+                input.send("");
+                input.send("abc");
+
+                assertThat(matching.getSentMessages()).containsExactly("");
+                assertThat(rest.getSentMessages()).containsExactly("abc");
+            });
+
+            and("one of the channels is stopped", () -> {
+                rest.stop();
+
+                should("send messages to the other channel", () -> {
+                    assertThat(input.send("")).isTrue();
+
+                    assertThat(matching.getSentMessages()).containsExactly("");
+                });
+
+                should("stop sending messages once a message for that channel fails", () -> {
+                    assertThat(input.send("abc")).isFalse();
+                    assertThat(input.send("")).isFalse();
+
+                    assertThat(matching.getSentMessages()).isEmpty();
+                });
+            });
+        });
+
+        subject("tee", () -> {
+            final SpyChannel<String> first = new SpyChannel<>();
+            final SpyChannel<String> second = new SpyChannel<>();
+            final Channel<String> input = Channels.tee(first, second);
+
+            should("send messages to both channels", () -> {
+                input.send("abc");
+
+                assertThat(first.getSentMessages()).containsExactly("abc");
+                assertThat(second.getSentMessages()).containsExactly("abc");
+            });
+
+            and("one of the channels is stopped", () -> {
+                first.stop();
+
+                should("fail to send a message", () -> {
+                    assertThat(input.send("abc")).isFalse();
+                });
+
+                should("stop sending messages to the other channel", () -> {
+                    input.send("abc");
+
+                    assertThat(input.send("def")).isFalse();
+                    assertThat(second.getSentMessages()).containsExactly("abc");
+                });
+            });
+        });
+    }
+}
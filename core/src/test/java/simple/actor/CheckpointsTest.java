@@ -0,0 +1,168 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor;
+
+import org.junit.runner.RunWith;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+
+import alioli.Scenario;
+import simple.actor.testing.SameThreadRunner;
+
+import static alioli.Asserts.assertThrows;
+import static com.google.common.truth.Truth.assertThat;
+
+/** Tests for {@link Checkpoints}. */
+@RunWith(Scenario.Runner.class)
+public class CheckpointsTest extends Scenario {
+    {
+        subject("pipeline of two actors", () -> {
+            final Checkpoints checkpoints = new Checkpoints(new System(new SameThreadRunner()));
+            final Checkpoints.Node<Integer, List<Integer>> sinkNode =
+                    checkpoints.register(new Recorder(null));
+            final Channel<Integer> toSink = sinkNode.input();
+            final Checkpoints.Node<Integer, List<Integer>> stageNode =
+                    checkpoints.register(new Recorder(toSink), toSink);
+            final Channel<Integer> source = stageNode.input();
+            source.send(1);
+            source.send(2);
+
+            should("take a snapshot of every actor", () -> {
+                final Checkpoints.Snapshot snapshot = checkpoints.checkpoint().get();
+
+                assertThat(snapshot.getId()).isEqualTo(0L);
+                assertThat(snapshot.get(stageNode)).containsExactly(1, 2).inOrder();
+                assertThat(snapshot.get(sinkNode)).containsExactly(1, 2).inOrder();
+            });
+
+            should("take consecutive snapshots", () -> {
+                checkpoints.checkpoint().get();
+                source.send(3);
+                final Checkpoints.Snapshot snapshot = checkpoints.checkpoint().get();
+
+                assertThat(snapshot.getId()).isEqualTo(1L);
+                assertThat(snapshot.get(sinkNode)).containsExactly(1, 2, 3).inOrder();
+            });
+
+            should("fail to use an output twice", () -> {
+                assertThat(assertThrows(() -> checkpoints.register(new Recorder(toSink), toSink)))
+                        .isInstanceOf(IllegalArgumentException.class);
+            });
+
+            should("fail to use a channel that is not an input as an output", () -> {
+                final Channel<Integer> output =
+                        new System(new SameThreadRunner()).register(new Recorder(null));
+
+                assertThat(assertThrows(() -> checkpoints.register(new Recorder(output), output)))
+                        .isInstanceOf(IllegalArgumentException.class);
+            });
+        });
+
+        subject("actor with a slow and a fast input", () -> {
+            final Queue<Runnable> pending = new ArrayDeque<>();
+            final Checkpoints checkpoints =
+                    new Checkpoints(new System(new ExecutorRunner(pending::add, 1 /*batch*/)));
+            final Checkpoints.Node<Integer, List<Integer>> sinkNode =
+                    checkpoints.register(new Recorder(null));
+            final Channel<Integer> fast = sinkNode.input();
+            final Channel<Integer> toSink = sinkNode.input();
+            final Checkpoints.Node<Integer, List<Integer>> stageNode =
+                    checkpoints.register(new Recorder(toSink), toSink);
+            final Channel<Integer> slow = stageNode.input();
+
+            slow.send(1);
+            fast.send(2);
+            final CompletableFuture<Checkpoints.Snapshot> checkpoint = checkpoints.checkpoint();
+            fast.send(3);
+            slow.send(4);
+
+            should("not complete the checkpoint before barriers reach all actors", () -> {
+                assertThat(checkpoint.isDone()).isFalse();
+            });
+
+            should("return the checkpoint in progress", () -> {
+                assertThat(checkpoints.checkpoint()).isSameAs(checkpoint);
+            });
+
+            should("include only messages sent before the checkpoint", () -> {
+                while (!pending.isEmpty()) {
+                    pending.remove().run();
+                }
+                final Checkpoints.Snapshot snapshot = checkpoint.getNow(null);
+
+                assertThat(snapshot).isNotNull();
+                assertThat(snapshot.get(stageNode)).containsExactly(1);
+                assertThat(snapshot.get(sinkNode)).containsExactly(1, 2);
+            });
+
+            when("an actor stops during the checkpoint", () -> {
+                sinkNode.stop();
+                while (!pending.isEmpty()) {
+                    pending.remove().run();
+                }
+
+                should("fail the checkpoint", () -> {
+                    assertThat(checkpoint.isCompletedExceptionally()).isTrue();
+                    assertThat(assertThrows(checkpoint::join).getCause())
+                            .isInstanceOf(IllegalStateException.class);
+                });
+
+                should("take the next checkpoint without the stopped actor", () -> {
+                    final CompletableFuture<Checkpoints.Snapshot> next =
+                            checkpoints.checkpoint();
+                    while (!pending.isEmpty()) {
+                        pending.remove().run();
+                    }
+                    final Checkpoints.Snapshot snapshot = next.getNow(null);
+
+                    assertThat(snapshot).isNotNull();
+                    assertThat(snapshot.get(stageNode)).containsExactly(1, 4).inOrder();
+                    assertThat(assertThrows(() -> snapshot.get(sinkNode)))
+                            .isInstanceOf(IllegalArgumentException.class);
+                });
+            });
+        });
+    }
+
+    /** Records received messages and forwards them to its output. */
+    private static final class Recorder extends CheckpointedActor<Integer, List<Integer>> {
+
+        private final Channel<Integer> mOutput;
+        private final List<Integer> mReceived = new ArrayList<>();
+
+        Recorder(final Channel<Integer> output) {
+            mOutput = output;
+        }
+
+        @Override
+        protected void onMessage(final Integer message) {
+            mReceived.add(message);
+            if (mOutput != null) {
+                mOutput.send(message);
+            }
+        }
+
+        @Override
+        protected List<Integer> getSnapshot() {
+            return new ArrayList<>(mReceived);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor;
+
+import org.junit.runner.RunWith;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import alioli.Scenario;
+import simple.actor.testing.Threads;
+
+import static com.google.common.truth.Truth.assertThat;
+import static simple.actor.testing.Threads.await;
+
+/** Tests for {@link DeadlineRunner}. */
+@RunWith(Scenario.Runner.class)
+public class DeadlineRunnerTest extends Scenario {
+    {
+        subject("runner with a single busy thread", () -> {
+            final DeadlineRunner runner = new DeadlineRunner(
+                    1 /*threads*/, 1, TimeUnit.SECONDS, Threads::newDaemon);
+            final CountDownLatch gate = new CountDownLatch(1);
+            runner.create().send(() -> await(gate));
+            final List<String> executed = new CopyOnWriteArrayList<>();
+
+            should("execute the channel with the earliest deadline first", () -> {
+                final CountDownLatch done = new CountDownLatch(2);
+                runner.create().send(() -> {
+                    executed.add("background");
+                    done.countDown();
+                });
+                runner.create(1, TimeUnit.MILLISECONDS).send(() -> {
+                    executed.add("urgent");
+                    done.countDown();
+                });
+                gate.countDown();
+
+                assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+                assertThat(executed).containsExactly("urgent", "background").inOrder();
+            });
+
+            should("execute runnables sent to the same channel in order", () -> {
+                final Channel<Runnable> channel = runner.create();
+                final CountDownLatch done = new CountDownLatch(3);
+                for (final String name : new String[]{"first", "second", "third"}) {
+                    channel.send(() -> {
+                        executed.add(name);
+                        done.countDown();
+                    });
+                }
+                gate.countDown();
+
+                assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+                assertThat(executed).containsExactly("first", "second", "third").inOrder();
+            });
+
+            when("a channel is stopped", () -> {
+                final Channel<Runnable> channel = runner.create();
+                channel.stop();
+
+                should("fail to send a runnable", () -> {
+                    assertThat(channel.send(() -> executed.add("stopped"))).isFalse();
+                    gate.countDown();
+                    assertThat(executed).isEmpty();
+                });
+            });
+        });
+
+        subject("runner with a single thread", () -> {
+            final List<Throwable> reported = new CopyOnWriteArrayList<>();
+            final DeadlineRunner runner = new DeadlineRunner(
+                    1 /*threads*/, 1, TimeUnit.SECONDS, runnable -> {
+                        final Thread thread = Threads.newDaemon(runnable);
+                        thread.setUncaughtExceptionHandler((t, e) -> reported.add(e));
+                        return thread;
+                    });
+
+            when("a runnable throws", () -> {
+                final RuntimeException failure = new RuntimeException("failure");
+                final Channel<Runnable> channel = runner.create();
+                channel.send(() -> {
+                    throw failure;
+                });
+
+                should("report the exception and keep executing runnables", () -> {
+                    final CountDownLatch done = new CountDownLatch(2);
+                    channel.send(done::countDown);
+                    runner.create().send(done::countDown);
+
+                    assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+                    assertThat(reported).containsExactly(failure);
+                    runner.shutdown();
+                });
+            });
+        });
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor;
+
+import org.junit.runner.RunWith;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import alioli.Scenario;
+import simple.actor.testing.Threads;
+
+import static com.google.common.truth.Truth.assertThat;
+import static simple.actor.testing.Threads.await;
+
+/** Tests for {@link ElasticRunner}. */
+@RunWith(Scenario.Runner.class)
+public class ElasticRunnerTest extends Scenario {
+    {
+        subject("runner with one core thread", () -> {
+            final ElasticRunner runner = new ElasticRunner(1 /*core*/, 2 /*max*/,
+                    50 /*keep-alive*/, 1 /*latency*/, TimeUnit.MILLISECONDS,
+                    Threads::newDaemon);
+
+            should("execute a runnable", () -> {
+                final CountDownLatch done = new CountDownLatch(1);
+                runner.create().send(done::countDown);
+
+                assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+                assertThat(runner.getPoolSize()).isEqualTo(1);
+            });
+
+            when("the core thread is busy", () -> {
+                final CountDownLatch gate = new CountDownLatch(1);
+                final CountDownLatch busy = new CountDownLatch(1);
+                runner.create().send(() -> {
+                    busy.countDown();
+                    await(gate);
+                });
+                busy.await(5, TimeUnit.SECONDS);
+
+                and("runnables wait on multiple channels", () -> {
+                    final CountDownLatch done = new CountDownLatch(2);
+                    runner.create().send(done::countDown);
+                    runner.create().send(done::countDown);
+
+                    should("start another thread to execute them", () -> {
+                        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+                        assertThat(runner.getPoolSize()).isEqualTo(2);
+                        assertThat(runner.getStartedCount()).isEqualTo(2);
+                        gate.countDown();
+                    });
+
+                    should("retire the extra thread once it is idle", () -> {
+                        gate.countDown();
+                        done.await(5, TimeUnit.SECONDS);
+
+                        final long deadline = java.lang.System.nanoTime()
+                                + TimeUnit.SECONDS.toNanos(5);
+                        while ((runner.getPoolSize() > 1)
+                                && (java.lang.System.nanoTime() < deadline)) {
+                            Thread.sleep(10);
+                        }
+                        assertThat(runner.getPoolSize()).isEqualTo(1);
+                        assertThat(runner.getRetiredCount()).isEqualTo(1);
+                    });
+                });
+            });
+
+            when("shut down", () -> {
+                runner.shutdown();
+
+                should("fail to send a runnable", () -> {
+                    assertThat(runner.create().send(() -> {})).isFalse();
+                });
+
+                should("not start a thread to compensate a stalled one", () -> {
+                    final long started = runner.getStartedCount();
+                    runner.compensate();
+
+                    assertThat(runner.getCompensatedCount()).isEqualTo(0);
+                    assertThat(runner.getStartedCount()).isEqualTo(started);
+                });
+            });
+        });
+
+        subject("runner without core threads", () -> {
+            final ElasticRunner runner = new ElasticRunner(0 /*core*/, 1 /*max*/,
+                    1 /*keep-alive*/, 1 /*latency*/, TimeUnit.MICROSECONDS,
+                    Threads::newDaemon);
+
+            should("execute runnables sent while its only thread is retiring", () -> {
+                final Channel<Runnable> channel = runner.create();
+                for (int i = 0; i < 20000; i++) {
+                    final CountDownLatch done = new CountDownLatch(1);
+                    channel.send(done::countDown);
+
+                    assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+                }
+                runner.shutdown();
+            });
+        });
+
+        subject("runner with two core threads", () -> {
+            final ElasticRunner runner = new ElasticRunner(2 /*core*/, 2 /*max*/,
+                    50 /*keep-alive*/, 1 /*latency*/, TimeUnit.MILLISECONDS,
+                    Threads::newDaemon);
+
+            when("all threads are busy", () -> {
+                final CountDownLatch gate = new CountDownLatch(1);
+                final CountDownLatch busy = new CountDownLatch(2);
+                for (int i = 0; i < 2; i++) {
+                    runner.create().send(() -> {
+                        busy.countDown();
+                        await(gate);
+                    });
+                }
+                busy.await(5, TimeUnit.SECONDS);
+
+                and("a stalled thread is compensated", () -> {
+                    runner.compensate();
+
+                    should("start a thread above the maximum size", () -> {
+                        final CountDownLatch done = new CountDownLatch(1);
+                        runner.create().send(done::countDown);
+
+                        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+                        assertThat(runner.getPoolSize()).isEqualTo(3);
+                        assertThat(runner.getCompensatedCount()).isEqualTo(1);
+                        gate.countDown();
+                    });
+                });
+            });
+        });
+
+        subject("runner with a single thread", () -> {
+            final List<Throwable> reported = new CopyOnWriteArrayList<>();
+            final ElasticRunner runner = new ElasticRunner(1 /*core*/, 1 /*max*/,
+                    50 /*keep-alive*/, 1 /*latency*/, TimeUnit.MILLISECONDS, runnable -> {
+                        final Thread thread = Threads.newDaemon(runnable);
+                        thread.setUncaughtExceptionHandler((t, e) -> reported.add(e));
+                        return thread;
+                    });
+
+            when("a runnable throws", () -> {
+                final RuntimeException failure = new RuntimeException("failure");
+                final Channel<Runnable> channel = runner.create();
+                channel.send(() -> {
+                    throw failure;
+                });
+
+                should("report the exception and keep executing runnables", () -> {
+                    final CountDownLatch done = new CountDownLatch(2);
+                    channel.send(done::countDown);
+                    runner.create().send(done::countDown);
+
+                    assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+                    assertThat(reported).containsExactly(failure);
+                    assertThat(runner.getPoolSize()).isEqualTo(1);
+                    assertThat(runner.getStartedCount()).isEqualTo(1);
+                    runner.shutdown();
+                });
+            });
+        });
+    }
+}
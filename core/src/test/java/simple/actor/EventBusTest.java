@@ -0,0 +1,140 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor;
+
+import org.junit.runner.RunWith;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+import alioli.Scenario;
+import simple.actor.testing.SameThreadRunner;
+import simple.actor.testing.SpyActor;
+import simple.actor.testing.SpyChannel;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/** Tests for {@link EventBus}. */
+@RunWith(Scenario.Runner.class)
+public class EventBusTest extends Scenario {
+    {
+        subject("event bus", () -> {
+            final EventBus bus = new EventBus(new System(new SameThreadRunner()));
+
+            when("a channel is subscribed to a class of events", () -> {
+                final SpyChannel<Number> subscriber = new SpyChannel<>();
+                final Channel<Number> subscription = bus.subscribe(Number.class, subscriber);
+
+                should("deliver published events of the class and its subclasses", () -> {
+                    assertThat(bus.publish(1)).isEqualTo(1);
+                    assertThat(bus.publish(2.0)).isEqualTo(1);
+
+                    assertThat(subscriber.getSentMessages()).containsExactly(1, 2.0).inOrder();
+                });
+
+                should("not deliver published events of other classes", () -> {
+                    assertThat(bus.publish("event")).isEqualTo(0);
+
+                    assertThat(subscriber.getSentMessages()).isEmpty();
+                });
+
+                should("not deliver events published on a topic", () -> {
+                    assertThat(bus.publish("topic", 1)).isEqualTo(0);
+
+                    assertThat(subscriber.getSentMessages()).isEmpty();
+                });
+
+                should("not deliver events published on the empty topic", () -> {
+                    assertThat(bus.publish("", 1)).isEqualTo(0);
+
+                    assertThat(subscriber.getSentMessages()).isEmpty();
+                });
+
+                and("the returned channel is stopped", () -> {
+                    subscription.stop();
+
+                    should("stop the subscribed channel", () -> {
+                        assertThat(subscriber.isStopped()).isTrue();
+                    });
+
+                    should("not deliver published events anymore", () -> {
+                        assertThat(bus.publish(1)).isEqualTo(0);
+                    });
+                });
+
+                and("the subscribed channel is stopped", () -> {
+                    subscriber.stop();
+
+                    should("remove the subscription", () -> {
+                        assertThat(bus.publish(1)).isEqualTo(0);
+                        bus.subscribe(Integer.class, new SpyChannel<>());
+                        assertThat(bus.publish(1)).isEqualTo(1);
+                    });
+                });
+            });
+
+            when("an actor is registered to a topic", () -> {
+                final SpyActor<Integer> actor = new SpyActor<>();
+                bus.register("topic", Integer.class, actor);
+
+                should("start the actor", () -> {
+                    assertThat(actor.isStarted()).isTrue();
+                });
+
+                should("deliver events published on the topic", () -> {
+                    assertThat(bus.publish("topic", 1)).isEqualTo(1);
+                    assertThat(bus.publish("other", 2)).isEqualTo(0);
+
+                    assertThat(actor.getReceivedMessages()).containsExactly(1);
+                });
+            });
+
+            when("a channel is subscribed to the empty topic", () -> {
+                final SpyChannel<Integer> subscriber = new SpyChannel<>();
+                bus.subscribe("", Integer.class, subscriber);
+
+                should("not deliver events published without a topic", () -> {
+                    assertThat(bus.publish(1)).isEqualTo(0);
+                    assertThat(bus.publish("", 2)).isEqualTo(1);
+
+                    assertThat(subscriber.getSentMessages()).containsExactly(2);
+                });
+            });
+        });
+
+        subject("event bus of a system with a budget for one message", () -> {
+            final Queue<Runnable> pending = new ArrayDeque<>();
+            final System system = new System.Builder(new ExecutorRunner(pending::add))
+                    .budget(new Budget(1, Budget.COUNT))
+                    .build();
+            final EventBus bus = new EventBus(system);
+            final SpyActor<Integer> actor = new SpyActor<>();
+            bus.register("topic", Integer.class, actor);
+
+            should("keep the subscription when the budget is exhausted", () -> {
+                assertThat(bus.publish("topic", 1)).isEqualTo(1);
+                assertThat(bus.publish("topic", 2)).isEqualTo(1);
+                assertThat(bus.publish("topic", 3)).isEqualTo(1);
+
+                while (!pending.isEmpty()) {
+                    pending.remove().run();
+                }
+                assertThat(actor.getReceivedMessages()).containsExactly(1, 2, 3).inOrder();
+            });
+        });
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor;
+
+import org.junit.runner.RunWith;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import alioli.Scenario;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/** Tests for {@link ExecutorRunner}. */
+@RunWith(Scenario.Runner.class)
+public class ExecutorRunnerTest extends Scenario {
+    {
+        subject("created channel", () -> {
+            final QueueExecutor executor = new QueueExecutor();
+            final Channel<Runnable> channel = new ExecutorRunner(executor, 2 /*batch*/).create();
+            final List<Integer> executed = new ArrayList<>();
+
+            when("runnables are sent", () -> {
+                for (int i = 0; i < 3; i++) {
+                    final int index = i;
+                    assertThat(channel.send(() -> executed.add(index))).isTrue();
+                }
+
+                should("submit a single task to the executor", () -> {
+                    assertThat(executor.mTasks).hasSize(1);
+                });
+
+                should("execute them in order in batches", () -> {
+                    executor.runNext();
+                    assertThat(executed).containsExactly(0, 1).inOrder();
+                    assertThat(executor.mTasks).hasSize(1);
+
+                    executor.runNext();
+                    assertThat(executed).containsExactly(0, 1, 2).inOrder();
+                    assertThat(executor.mTasks).isEmpty();
+                });
+            });
+
+            when("stopped", () -> {
+                channel.stop();
+
+                should("fail to send a runnable", () -> {
+                    assertThat(channel.send(() -> executed.add(0))).isFalse();
+                    assertThat(executor.mTasks).isEmpty();
+                });
+            });
+
+            when("executor rejects tasks", () -> {
+                executor.mRejecting = true;
+
+                should("fail to send a runnable", () -> {
+                    assertThat(channel.send(() -> executed.add(0))).isFalse();
+                });
+
+                should("stop the channel", () -> {
+                    channel.send(() -> executed.add(0));
+                    executor.mRejecting = false;
+
+                    assertThat(channel.send(() -> executed.add(1))).isFalse();
+                    assertThat(executor.mTasks).isEmpty();
+                });
+            });
+        });
+    }
+
+    private static final class QueueExecutor implements Executor {
+
+        final Queue<Runnable> mTasks = new ArrayDeque<>();
+        boolean mRejecting = false;
+
+        @Override
+        public void execute(final Runnable task) {
+            if (mRejecting) {
+                throw new RejectedExecutionException();
+            }
+            mTasks.add(task);
+        }
+
+        void runNext() {
+            mTasks.remove().run();
+        }
+    }
+}
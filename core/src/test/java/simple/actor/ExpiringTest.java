@@ -0,0 +1,122 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor;
+
+import org.junit.runner.RunWith;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+import alioli.Scenario;
+import simple.actor.testing.SameThreadRunner;
+import simple.actor.testing.SpyActor;
+import simple.actor.testing.SpyChannel;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/** Tests for {@link Expiring}. */
+@RunWith(Scenario.Runner.class)
+public class ExpiringTest extends Scenario {
+    {
+        subject("registered actor", () -> {
+            final System system = new System(new SameThreadRunner());
+            final SpyActor<String> actor = new SpyActor<>();
+            final SpyChannel<String> deadLetters = new SpyChannel<>();
+            final Expiring<String> channel = Expiring.register(system, actor, deadLetters);
+
+            should("be started", () -> {
+                assertThat(actor.isStarted()).isTrue();
+            });
+
+            should("deliver a message without a deadline", () -> {
+                assertThat(channel.send("message")).isTrue();
+
+                assertThat(actor.getReceivedMessages()).containsExactly("message");
+            });
+
+            should("deliver a message before it expires", () -> {
+                assertThat(channel.send("message", 1, TimeUnit.HOURS)).isTrue();
+
+                assertThat(actor.getReceivedMessages()).containsExactly("message");
+                assertThat(channel.getExpiredCount()).isEqualTo(0L);
+            });
+
+            should("not deliver a message after its deadline", () -> {
+                assertThat(channel.sendBefore("message", java.lang.System.nanoTime() - 1))
+                        .isTrue();
+
+                assertThat(actor.getReceivedMessages()).isEmpty();
+                assertThat(channel.getExpiredCount()).isEqualTo(1L);
+                assertThat(deadLetters.getSentMessages()).containsExactly("message");
+            });
+
+            and("stopped", () -> {
+                channel.stop();
+
+                should("stop the actor", () -> {
+                    assertThat(actor.isStopped()).isTrue();
+                });
+
+                should("fail to send a message", () -> {
+                    assertThat(channel.send("message", 1, TimeUnit.HOURS)).isFalse();
+                });
+            });
+        });
+
+        subject("actor falling behind", () -> {
+            final Queue<Runnable> pending = new ArrayDeque<>();
+            final System system = new System(new ExecutorRunner(pending::add));
+            final SpyActor<String> actor = new SpyActor<>();
+            final Expiring<String> channel = Expiring.register(system, actor, null);
+
+            should("drop messages that expired while queued", () -> {
+                channel.send("stale", 1, TimeUnit.MILLISECONDS);
+                channel.send("fresh", 1, TimeUnit.HOURS);
+                Thread.sleep(5);
+                while (!pending.isEmpty()) {
+                    pending.remove().run();
+                }
+
+                assertThat(actor.getReceivedMessages()).containsExactly("fresh");
+                assertThat(channel.getExpiredCount()).isEqualTo(1L);
+            });
+        });
+
+        subject("actor registered with a calling thread runner", () -> {
+            final System system = new System(new CallingThreadRunner());
+            final Queue<String> received = new ArrayDeque<>();
+            final Actor<String> actor = new Actor<String>() {
+                @Override
+                protected void onStart(final Channel<String> self, final Context context) {
+                    self.send("started");
+                }
+
+                @Override
+                protected void onMessage(final String message) {
+                    received.add(message);
+                }
+            };
+
+            should("receive a message sent to itself while starting", () -> {
+                Expiring.register(system, actor, null);
+
+                assertThat(received).containsExactly("started");
+            });
+        });
+    }
+}
@@ -18,8 +18,12 @@ package simple.actor;
 
 import org.junit.runner.RunWith;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 import alioli.Scenario;
 import simple.actor.testing.SpyChannel;
+import simple.actor.testing.Threads;
 
 import static com.google.common.truth.Truth.assertThat;
 
@@ -83,6 +87,114 @@ public class MailboxTest extends Scenario {
                 });
             });
 
+            when("messages are sent", () -> {
+                final Message first = new Message();
+                final Message second = new Message();
+                mailbox.send(first);
+                mailbox.send(second);
+
+                and("a channel that is slow to receive them is connected", () -> {
+                    final SpyChannel<Message> channel = new SpyChannel<>();
+                    final CountDownLatch receiving = new CountDownLatch(1);
+                    final CountDownLatch gate = new CountDownLatch(1);
+                    final Channel<Message> slow = new Channel<Message>() {
+                        @Override
+                        public boolean send(final Message message) {
+                            receiving.countDown();
+                            try {
+                                gate.await();
+                            } catch (final InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                            return channel.send(message);
+                        }
+
+                        @Override
+                        public void stop() {
+                            channel.stop();
+                        }
+                    };
+                    final Thread connecting = new Thread(() -> mailbox.connect(slow));
+                    connecting.start();
+                    receiving.await(5, TimeUnit.SECONDS);
+
+                    should("not block sending of another message", () -> {
+                        assertThat(mailbox.send(new Message())).isTrue();
+                        gate.countDown();
+                        connecting.join();
+                    });
+
+                    should("resend all messages in the order they were received", () -> {
+                        final Message third = new Message();
+                        mailbox.send(third);
+                        gate.countDown();
+                        connecting.join();
+
+                        assertThat(channel.getSentMessages())
+                                .containsExactly(first, second, third).inOrder();
+                    });
+
+                    should("stop the channel if mailbox is stopped in the meantime", () -> {
+                        mailbox.stop();
+                        gate.countDown();
+                        connecting.join();
+
+                        assertThat(channel.isStopped()).isTrue();
+                        assertThat(channel.getSentMessages()).containsExactly(first, second);
+                    });
+
+                    should("connect another channel only after resending the batch", () -> {
+                        final Message third = new Message();
+                        mailbox.send(third);
+                        final SpyChannel<Message> other = new SpyChannel<>();
+                        final Thread reconnecting =
+                                Threads.newDaemon(() -> mailbox.connect(other));
+                        reconnecting.start();
+                        while ((reconnecting.getState() != Thread.State.WAITING)
+                                && reconnecting.isAlive()) {
+                            Thread.yield();
+                        }
+
+                        assertThat(other.getSentMessages()).isEmpty();
+                        gate.countDown();
+                        connecting.join();
+                        reconnecting.join();
+                        assertThat(channel.getSentMessages())
+                                .containsExactly(first, second).inOrder();
+                        assertThat(other.getSentMessages()).containsExactly(third);
+                    });
+                });
+
+                and("a channel that connects another one while receiving them is connected", () -> {
+                    final SpyChannel<Message> other = new SpyChannel<>();
+                    final SpyChannel<Message> channel = new SpyChannel<>();
+                    mailbox.connect(new Channel<Message>() {
+                        @Override
+                        public boolean send(final Message message) {
+                            mailbox.connect(other);
+                            return channel.send(message);
+                        }
+
+                        @Override
+                        public void stop() {
+                            channel.stop();
+                        }
+                    });
+
+                    should("resend the rest of the messages to the other channel", () -> {
+                        assertThat(channel.getSentMessages()).containsExactly(first);
+                        assertThat(other.getSentMessages()).containsExactly(second);
+                    });
+
+                    should("stay connected to the other channel", () -> {
+                        final Message third = new Message();
+                        mailbox.send(third);
+
+                        assertThat(other.getSentMessages()).containsExactly(second, third);
+                    });
+                });
+            });
+
             when("stopped", () -> {
                 final Message message = new Message();
                 mailbox.send(message);
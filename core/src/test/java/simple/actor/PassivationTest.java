@@ -0,0 +1,141 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor;
+
+import org.junit.runner.RunWith;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import alioli.Scenario;
+import simple.actor.testing.SameThreadRunner;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/** Tests for {@link Passivation}. */
+@RunWith(Scenario.Runner.class)
+public class PassivationTest extends Scenario {
+    {
+        subject("registered actor", () -> {
+            final System system = new System(new SameThreadRunner());
+            final Passivation passivation = new Passivation(system, 0, TimeUnit.NANOSECONDS);
+            final List<Counter> created = new ArrayList<>();
+            final Channel<Integer> channel = passivation.register(state -> {
+                final Counter counter = new Counter(state);
+                created.add(counter);
+                return counter;
+            }, new IntegerCodec(), 0);
+
+            should("not be created before a message is sent", () -> {
+                assertThat(created).isEmpty();
+            });
+
+            should("be created and started when a message is sent", () -> {
+                assertThat(channel.send(1)).isTrue();
+
+                assertThat(created).hasSize(1);
+                assertThat(created.get(0).mStarted).isTrue();
+                assertThat(created.get(0).mSum).isEqualTo(1);
+            });
+
+            when("passivated", () -> {
+                channel.send(1);
+                channel.send(2);
+                passivation.passivateIdle();
+
+                should("not stop the actor", () -> {
+                    assertThat(created.get(0).mStopped).isFalse();
+                });
+
+                should("recreate the actor from its state when a message is sent", () -> {
+                    assertThat(channel.send(3)).isTrue();
+
+                    assertThat(created).hasSize(2);
+                    assertThat(created.get(1).mSum).isEqualTo(6);
+                });
+
+                and("stopped", () -> {
+                    channel.stop();
+
+                    should("fail to send a message", () -> {
+                        assertThat(channel.send(1)).isFalse();
+                        assertThat(created).hasSize(1);
+                    });
+                });
+            });
+
+            when("stopped", () -> {
+                channel.send(1);
+                channel.stop();
+
+                should("stop the actor", () -> {
+                    assertThat(created.get(0).mStopped).isTrue();
+                });
+
+                should("fail to send a message", () -> {
+                    assertThat(channel.send(1)).isFalse();
+                });
+            });
+        });
+    }
+
+    private static final class Counter extends PassivatingActor<Integer, Integer> {
+
+        int mSum;
+        boolean mStarted = false;
+        boolean mStopped = false;
+
+        Counter(final int sum) {
+            mSum = sum;
+        }
+
+        @Override
+        protected void onMessage(final Integer message) {
+            mSum += message;
+        }
+
+        @Override
+        protected void onStart(final Channel<Integer> self, final Context context) {
+            mStarted = true;
+        }
+
+        @Override
+        protected void onStop() {
+            mStopped = true;
+        }
+
+        @Override
+        protected Integer getState() {
+            return mSum;
+        }
+    }
+
+    private static final class IntegerCodec implements Codec<Integer> {
+
+        @Override
+        public ByteBuffer encode(final Integer value) {
+            return (ByteBuffer) ByteBuffer.allocate(Integer.BYTES).putInt(value).flip();
+        }
+
+        @Override
+        public Integer decode(final ByteBuffer buffer) {
+            return buffer.getInt();
+        }
+    }
+}
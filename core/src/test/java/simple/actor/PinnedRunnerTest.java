@@ -0,0 +1,151 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor;
+
+import org.junit.runner.RunWith;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import alioli.Scenario;
+import simple.actor.testing.Threads;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/** Tests for {@link PinnedRunner}. */
+@RunWith(Scenario.Runner.class)
+public class PinnedRunnerTest extends Scenario {
+    {
+        subject("runner with two threads", () -> {
+            final PinnedRunner runner = new PinnedRunner(2, Threads::newDaemon);
+
+            when("a channel is created on a thread", () -> {
+                final Channel<Runnable> channel = runner.create(1);
+
+                should("be listed on that thread", () -> {
+                    assertThat(runner.getChannels(1)).containsExactly(channel);
+                    assertThat(runner.getChannels(0)).isEmpty();
+                });
+
+                should("execute all runnables on the same thread", () -> {
+                    final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+                    final CountDownLatch done = new CountDownLatch(10);
+                    for (int i = 0; i < 10; i++) {
+                        channel.send(() -> {
+                            threads.add(Thread.currentThread());
+                            done.countDown();
+                        });
+                    }
+
+                    assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+                    assertThat(threads).hasSize(1);
+                });
+
+                should("measure how long the channel and thread were busy", () -> {
+                    final CountDownLatch done = new CountDownLatch(1);
+                    channel.send(() -> {
+                        try {
+                            Thread.sleep(10);
+                        } catch (final InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        done.countDown();
+                    });
+                    done.await(5, TimeUnit.SECONDS);
+
+                    final long deadline = java.lang.System.nanoTime()
+                            + TimeUnit.SECONDS.toNanos(5);
+                    while ((runner.getBusyTime(1, TimeUnit.MILLISECONDS) < 10)
+                            && (java.lang.System.nanoTime() < deadline)) {
+                        Thread.sleep(1);
+                    }
+                    assertThat(runner.getBusyTime(channel, TimeUnit.MILLISECONDS))
+                            .isAtLeast(10L);
+                    assertThat(runner.getBusyTime(1, TimeUnit.MILLISECONDS)).isAtLeast(10L);
+                    assertThat(runner.getBusyTime(0, TimeUnit.MILLISECONDS)).isEqualTo(0L);
+                });
+
+                and("stopped", () -> {
+                    channel.stop();
+
+                    should("not be listed anymore", () -> {
+                        assertThat(runner.getChannels(1)).isEmpty();
+                    });
+
+                    should("fail to send a runnable", () -> {
+                        assertThat(channel.send(() -> {})).isFalse();
+                    });
+                });
+            });
+
+            should("create channels in round-robin order", () -> {
+                final Channel<Runnable> first = runner.create();
+                final Channel<Runnable> second = runner.create();
+
+                assertThat(runner.getChannels(0)).containsExactly(first);
+                assertThat(runner.getChannels(1)).containsExactly(second);
+            });
+        });
+
+        subject("runner with a single thread", () -> {
+            final List<Throwable> reported = new CopyOnWriteArrayList<>();
+            final PinnedRunner runner = new PinnedRunner(1, runnable -> {
+                final Thread thread = Threads.newDaemon(runnable);
+                thread.setUncaughtExceptionHandler((t, e) -> reported.add(e));
+                return thread;
+            });
+            final System system = new System(runner);
+            final List<String> received = new CopyOnWriteArrayList<>();
+            final CountDownLatch done = new CountDownLatch(2);
+            final Channel<String> channel = system.register(new Actor<String>() {
+                @Override
+                protected void onMessage(final String message) {
+                    if ("fail".equals(message)) {
+                        throw new IllegalStateException(message);
+                    }
+                    received.add(message);
+                    done.countDown();
+                }
+            });
+
+            when("an actor throws", () -> {
+                channel.send("fail");
+
+                should("report the exception and keep delivering on the same thread", () -> {
+                    channel.send("after");
+                    system.register(new Actor<String>() {
+                        @Override
+                        protected void onMessage(final String message) {
+                            received.add(message);
+                            done.countDown();
+                        }
+                    }).send("other");
+
+                    assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+                    assertThat(received).containsExactly("after", "other");
+                    assertThat(reported).hasSize(1);
+                    assertThat(reported.get(0)).hasMessageThat().isEqualTo("fail");
+                    runner.shutdown();
+                });
+            });
+        });
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor;
+
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import alioli.Scenario;
+import simple.actor.testing.Threads;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/** Tests for {@link Rebalancer}. */
+@RunWith(Scenario.Runner.class)
+public class RebalancerTest extends Scenario {
+    {
+        subject("two busy actors on the same thread", () -> {
+            final PinnedRunner runner = new PinnedRunner(2, Threads::newDaemon);
+            final System system = new System(() -> runner.create(0));
+            final Rebalancer rebalancer = new Rebalancer(system, runner, 0.5 /*imbalance*/);
+            final CountDownLatch done = new CountDownLatch(2);
+            final Channel<Long> first = system.register(new Sleeping(done));
+            final Channel<Long> second = system.register(new Sleeping(done));
+            first.send(20L);
+            second.send(20L);
+            done.await(5, TimeUnit.SECONDS);
+            awaitBusy(runner, 0, 40);
+
+            should("migrate one of them to the idle thread", () -> {
+                assertThat(rebalancer.rebalance()).isTrue();
+
+                assertThat(runner.getChannels(0)).hasSize(1);
+                assertThat(runner.getChannels(1)).hasSize(1);
+            });
+
+            should("not migrate anything if there was no load since the last time", () -> {
+                rebalancer.rebalance();
+
+                assertThat(rebalancer.rebalance()).isFalse();
+            });
+        });
+    }
+
+    private static void awaitBusy(final PinnedRunner runner, final int thread, final long millis)
+            throws InterruptedException {
+        final long deadline = java.lang.System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while ((runner.getBusyTime(thread, TimeUnit.MILLISECONDS) < millis)
+                && (java.lang.System.nanoTime() < deadline)) {
+            Thread.sleep(1);
+        }
+    }
+
+    private static final class Sleeping extends Actor<Long> {
+
+        private final CountDownLatch mDone;
+
+        Sleeping(final CountDownLatch done) {
+            mDone = done;
+        }
+
+        @Override
+        protected void onMessage(final Long millis) {
+            try {
+                Thread.sleep(millis);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            mDone.countDown();
+        }
+    }
+}
@@ -0,0 +1,263 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor;
+
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import alioli.Scenario;
+import simple.actor.testing.Threads;
+
+import static alioli.Asserts.assertThrows;
+import static com.google.common.truth.Truth.assertThat;
+
+/** Tests for {@link Shards}. */
+@RunWith(Scenario.Runner.class)
+public class ShardsTest extends Scenario {
+    {
+        subject("two shards", () -> {
+            final Shards shards = new Shards(2, Threads::newDaemon);
+
+            should("run actors of a shard on the same thread", () -> {
+                final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+                final CountDownLatch done = new CountDownLatch(20);
+                final Channel<Integer> first = shards.register(0, new Recording(threads, done));
+                final Channel<Integer> second = shards.register(0, new Recording(threads, done));
+                for (int i = 0; i < 10; i++) {
+                    first.send(i);
+                    second.send(i);
+                }
+
+                Threads.await(done);
+                assertThat(threads).hasSize(1);
+            });
+
+            should("know the current shard", () -> {
+                final int[] current = new int[2];
+                final CountDownLatch done = new CountDownLatch(2);
+                for (int i = 0; i < 2; i++) {
+                    final int shard = i;
+                    shards.register(shard, new Actor<Object>() {
+                        @Override
+                        protected void onStart(final Channel<Object> self,
+                                               final Context context) {
+                            current[shard] = shards.getCurrent();
+                            done.countDown();
+                        }
+
+                        @Override
+                        protected void onMessage(final Object message) {}
+                    });
+                }
+
+                Threads.await(done);
+                assertThat(current).asList().containsExactly(0, 1).inOrder();
+                assertThat(shards.getCurrent()).isEqualTo(-1);
+            });
+
+            should("deliver messages between shards in order", () -> {
+                final List<Integer> received = Collections.synchronizedList(new ArrayList<>());
+                final CountDownLatch done = new CountDownLatch(1);
+                final Channel<Integer> sink = shards.register(1, new Actor<Integer>() {
+                    @Override
+                    protected void onMessage(final Integer message) {
+                        received.add(message);
+                        if (message == 9999) {
+                            done.countDown();
+                        }
+                    }
+                });
+                final Channel<Integer> forwarder = shards.register(0, new Actor<Integer>() {
+                    @Override
+                    protected void onMessage(final Integer message) {
+                        sink.send(message);
+                    }
+                });
+                for (int i = 0; i < 10000; i++) {
+                    forwarder.send(i);
+                }
+
+                Threads.await(done);
+                assertThat(received).hasSize(10000);
+                for (int i = 0; i < 10000; i++) {
+                    assertThat(received.get(i)).isEqualTo(i);
+                }
+            });
+
+            should("ping-pong between shards", () -> {
+                final CountDownLatch done = new CountDownLatch(1);
+                final List<Channel<Integer>> players = new ArrayList<>();
+                for (int i = 0; i < 2; i++) {
+                    final int other = 1 - i;
+                    players.add(shards.register(i, new Actor<Integer>() {
+                        @Override
+                        protected void onMessage(final Integer count) {
+                            if (count == 0) {
+                                done.countDown();
+                            } else {
+                                players.get(other).send(count - 1);
+                            }
+                        }
+                    }));
+                }
+                players.get(0).send(10000);
+
+                assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+            });
+
+            should("register actors of an actor with its shard", () -> {
+                final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+                final CountDownLatch done = new CountDownLatch(2);
+                shards.register(1, new Actor<Integer>() {
+                    @Override
+                    protected void onStart(final Channel<Integer> self, final Context context) {
+                        threads.add(Thread.currentThread());
+                        context.register(new Recording(threads, done)).send(1);
+                        self.send(2);
+                    }
+
+                    @Override
+                    protected void onMessage(final Integer message) {
+                        threads.add(Thread.currentThread());
+                        done.countDown();
+                    }
+                });
+
+                Threads.await(done);
+                assertThat(threads).hasSize(1);
+            });
+
+            should("stop an actor after the messages sent before the stop", () -> {
+                final List<Integer> received = new CopyOnWriteArrayList<>();
+                final List<Integer> receivedBeforeStop = new CopyOnWriteArrayList<>();
+                final CountDownLatch stopped = new CountDownLatch(1);
+                final Channel<Integer> channel = shards.register(0, new Actor<Integer>() {
+                    @Override
+                    protected void onMessage(final Integer message) {
+                        received.add(message);
+                    }
+
+                    @Override
+                    protected void onStop() {
+                        receivedBeforeStop.add(received.size());
+                        stopped.countDown();
+                    }
+                });
+                for (int i = 0; i < 1000; i++) {
+                    channel.send(i);
+                }
+                channel.stop();
+
+                Threads.await(stopped);
+                assertThat(receivedBeforeStop).containsExactly(1000);
+                assertThat(channel.send(1000)).isFalse();
+            });
+
+            and("shut down", () -> {
+                final CountDownLatch stopped = new CountDownLatch(1);
+                final Channel<Object> channel = shards.register(0, new Actor<Object>() {
+                    @Override
+                    protected void onMessage(final Object message) {}
+
+                    @Override
+                    protected void onStop() {
+                        stopped.countDown();
+                    }
+                });
+                shards.shutdown();
+
+                should("stop all actors", () -> {
+                    Threads.await(stopped);
+                    assertThat(channel.send(new Object())).isFalse();
+                });
+
+                should("fail to register an actor", () -> {
+                    assertThat(assertThrows(() -> shards.register(0, new Recording(
+                            ConcurrentHashMap.newKeySet(), new CountDownLatch(1)))))
+                            .isInstanceOf(IllegalStateException.class);
+                });
+            });
+        });
+
+        subject("single shard", () -> {
+            final List<Throwable> reported = new CopyOnWriteArrayList<>();
+            final Shards shards = new Shards(1, runnable -> {
+                final Thread thread = Threads.newDaemon(runnable);
+                thread.setUncaughtExceptionHandler((t, e) -> reported.add(e));
+                return thread;
+            });
+
+            when("an actor throws", () -> {
+                final List<Integer> received = new CopyOnWriteArrayList<>();
+                final CountDownLatch done = new CountDownLatch(2);
+                final Channel<Integer> channel = shards.register(0, new Actor<Integer>() {
+                    @Override
+                    protected void onMessage(final Integer message) {
+                        if (message < 0) {
+                            throw new IllegalArgumentException("negative");
+                        }
+                        received.add(message);
+                        done.countDown();
+                    }
+                });
+                channel.send(-1);
+
+                should("report the exception and keep running actors of the shard", () -> {
+                    channel.send(1);
+                    shards.register(0, new Actor<Integer>() {
+                        @Override
+                        protected void onMessage(final Integer message) {
+                            received.add(message);
+                            done.countDown();
+                        }
+                    }).send(2);
+
+                    assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+                    assertThat(received).containsExactly(1, 2);
+                    assertThat(reported).hasSize(1);
+                    assertThat(reported.get(0)).hasMessageThat().isEqualTo("negative");
+                    shards.shutdown();
+                });
+            });
+        });
+    }
+
+    private static final class Recording extends Actor<Integer> {
+
+        private final Set<Thread> mThreads;
+        private final CountDownLatch mDone;
+
+        Recording(final Set<Thread> threads, final CountDownLatch done) {
+            mThreads = threads;
+            mDone = done;
+        }
+
+        @Override
+        protected void onMessage(final Integer message) {
+            mThreads.add(Thread.currentThread());
+            mDone.countDown();
+        }
+    }
+}
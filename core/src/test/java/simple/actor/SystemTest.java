@@ -18,9 +18,15 @@ package simple.actor;
 
 import org.junit.runner.RunWith;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+
 import alioli.Scenario;
 import simple.actor.testing.SameThreadRunner;
 import simple.actor.testing.SpyActor;
+import simple.actor.testing.SpyChannel;
 
 import static alioli.Asserts.assertThrows;
 import static com.google.common.truth.Truth.assertThat;
@@ -140,6 +146,208 @@ public class SystemTest extends Scenario {
             });
         });
 
+        subject("an actor with pending deliveries", () -> {
+            final Queue<Runnable> pending = new ArrayDeque<>();
+            final System system = new System(new ExecutorRunner(pending::add));
+            final SpyActor<Message> actor = new SpyActor<>();
+            final Channel<Message> channel = system.register(actor);
+            final Message first = new Message();
+            channel.send(first);
+
+            and("migrated to another runnable channel", () -> {
+                final boolean migrated = system.migrate(channel, new SameThreadRunner().create());
+
+                should("succeed to migrate", () -> {
+                    assertThat(migrated).isTrue();
+                });
+
+                should("not deliver a message before pending ones are delivered", () -> {
+                    assertThat(channel.send(new Message())).isTrue();
+                    assertThat(actor.getReceivedMessages()).isEmpty();
+                });
+
+                should("deliver all messages in order", () -> {
+                    final Message second = new Message();
+                    channel.send(second);
+                    while (!pending.isEmpty()) {
+                        pending.remove().run();
+                    }
+
+                    assertThat(actor.getReceivedMessages())
+                            .containsExactly(first, second)
+                            .inOrder();
+                });
+
+                should("deliver new messages using the new runnable channel", () -> {
+                    while (!pending.isEmpty()) {
+                        pending.remove().run();
+                    }
+                    final Message second = new Message();
+                    channel.send(second);
+
+                    assertThat(pending).isEmpty();
+                    assertThat(actor.getReceivedMessages())
+                            .containsExactly(first, second)
+                            .inOrder();
+                });
+
+                and("stopped", () -> {
+                    channel.stop();
+
+                    should("stop the actor once pending messages are delivered", () -> {
+                        assertThat(actor.isStopped()).isFalse();
+                        while (!pending.isEmpty()) {
+                            pending.remove().run();
+                        }
+
+                        assertThat(actor.isStopped()).isTrue();
+                    });
+                });
+            });
+
+            should("fail to migrate a channel that is not registered", () -> {
+                final SpyChannel<Runnable> target = new SpyChannel<>();
+
+                assertThat(system.migrate(new SpyChannel<Message>(), target)).isFalse();
+                assertThat(target.isStopped()).isFalse();
+            });
+        });
+
+        subject("system with a blocking runner", () -> {
+            final List<String> created = new ArrayList<>();
+            final simple.actor.Runner common = () -> {
+                created.add("common");
+                return new SameThreadRunner().create();
+            };
+            final simple.actor.Runner blocking = () -> {
+                created.add("blocking");
+                return new SameThreadRunner().create();
+            };
+            final System system = new System.Builder(common).blocking(blocking).build();
+
+            should("use the common runner for an actor", () -> {
+                final SpyActor<Message> actor = new SpyActor<>();
+                final Message message = new Message();
+                system.register(actor).send(message);
+
+                assertThat(created).containsExactly("common");
+                assertThat(actor.getReceivedMessages()).containsExactly(message);
+            });
+
+            should("use the blocking runner for a blocking actor", () -> {
+                final SpyActor<Message> actor = new SpyActor<>();
+                final Message message = new Message();
+                system.registerBlocking(actor).send(message);
+
+                assertThat(created).containsExactly("blocking");
+                assertThat(actor.getReceivedMessages()).containsExactly(message);
+            });
+        });
+
+        subject("system with named runners", () -> {
+            final List<String> created = new ArrayList<>();
+            final simple.actor.Runner common = () -> {
+                created.add("common");
+                return new SameThreadRunner().create();
+            };
+            final simple.actor.Runner background = () -> {
+                created.add("background");
+                return new SameThreadRunner().create();
+            };
+            final System system = new System.Builder(common)
+                    .runner("background", background)
+                    .build();
+
+            should("use the named runner for an actor registered with its name", () -> {
+                final SpyActor<Message> actor = new SpyActor<>();
+                final Message message = new Message();
+                system.register(actor, new Options.Builder().runner("background").build())
+                        .send(message);
+
+                assertThat(created).containsExactly("background");
+                assertThat(actor.getReceivedMessages()).containsExactly(message);
+            });
+
+            should("use the common runner for a blocking actor", () -> {
+                system.registerBlocking(new SpyActor<Message>());
+
+                assertThat(created).containsExactly("common");
+            });
+
+            should("fail to register an actor with an unknown runner", () -> {
+                final Options options = new Options.Builder().runner("unknown").build();
+
+                assertThat(assertThrows(() -> system.register(new SpyActor<>(), options)))
+                        .isInstanceOf(IllegalArgumentException.class);
+            });
+        });
+
+        subject("an actor with a bounded mailbox", () -> {
+            final Queue<Runnable> pending = new ArrayDeque<>();
+            final System system = new System(new ExecutorRunner(pending::add));
+            final SpyActor<Message> actor = new SpyActor<>();
+            final Channel<Message> channel =
+                    system.register(actor, new Options.Builder().bounded(2).build());
+            channel.send(new Message());
+            channel.send(new Message());
+
+            should("reject a message sent with trySend when the mailbox is full", () -> {
+                assertThat(System.trySend(channel, new Message())).isFalse();
+            });
+
+            should("not be stopped when the mailbox is full", () -> {
+                System.trySend(channel, new Message());
+                while (!pending.isEmpty()) {
+                    pending.remove().run();
+                }
+
+                assertThat(actor.isStopped()).isFalse();
+                assertThat(actor.getReceivedMessages()).hasSize(2);
+            });
+
+            should("store a message sent with send when the mailbox is full", () -> {
+                assertThat(channel.send(new Message())).isTrue();
+                while (!pending.isEmpty()) {
+                    pending.remove().run();
+                }
+
+                assertThat(actor.getReceivedMessages()).hasSize(3);
+            });
+
+            should("accept messages again once they are delivered", () -> {
+                while (!pending.isEmpty()) {
+                    pending.remove().run();
+                }
+
+                assertThat(System.trySend(channel, new Message())).isTrue();
+            });
+
+            should("fail to try sending to a channel that is not registered", () -> {
+                assertThat(assertThrows(() -> System.trySend(new SpyChannel<>(), new Message())))
+                        .isInstanceOf(IllegalArgumentException.class);
+            });
+        });
+
+        subject("system with an interceptor", () -> {
+            final List<Actor<?>> intercepted = new ArrayList<>();
+            final System system = new System.Builder(new SameThreadRunner())
+                    .interceptor((actor, delivery) -> {
+                        intercepted.add(actor);
+                        delivery.run();
+                    })
+                    .build();
+            final SpyActor<Message> actor = new SpyActor<>();
+            final Channel<Message> channel = system.register(actor);
+
+            should("wrap delivery of a message", () -> {
+                final Message message = new Message();
+                channel.send(message);
+
+                assertThat(intercepted).containsExactly(actor);
+                assertThat(actor.getReceivedMessages()).containsExactly(message);
+            });
+        });
+
         subject("system", () -> {
             final System system = new System(new SameThreadRunner());
 
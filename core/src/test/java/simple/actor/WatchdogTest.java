@@ -0,0 +1,130 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor;
+
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import alioli.Scenario;
+import simple.actor.testing.SpyActor;
+import simple.actor.testing.SpyChannel;
+
+import static com.google.common.truth.Truth.assertThat;
+import static simple.actor.testing.Threads.await;
+
+/** Tests for {@link Watchdog}. */
+@RunWith(Scenario.Runner.class)
+public class WatchdogTest extends Scenario {
+    {
+        subject("watchdog", () -> {
+            final SpyChannel<Watchdog.Stall> reports = new SpyChannel<>();
+            final SpyCompensator compensator = new SpyCompensator();
+            final Watchdog watchdog = new Watchdog(0, TimeUnit.NANOSECONDS, reports, compensator);
+            final SpyActor<Object> actor = new SpyActor<>();
+
+            when("a delivery is running", () -> {
+                final CountDownLatch running = new CountDownLatch(1);
+                final CountDownLatch gate = new CountDownLatch(1);
+                final Thread thread = new Thread(() -> watchdog.intercept(actor, () -> {
+                    running.countDown();
+                    await(gate);
+                }));
+                thread.start();
+                running.await(5, TimeUnit.SECONDS);
+
+                and("checked", () -> {
+                    watchdog.check();
+
+                    should("report the stalled delivery", () -> {
+                        assertThat(reports.getSentMessages()).hasSize(1);
+                        final Watchdog.Stall stall = reports.getSentMessages().get(0);
+                        assertThat(stall.getActor()).isSameAs(actor);
+                        assertThat(stall.getThread()).isSameAs(thread);
+                        gate.countDown();
+                    });
+
+                    should("compensate the stalled delivery", () -> {
+                        assertThat(compensator.mCompensated.get()).isEqualTo(1);
+                        gate.countDown();
+                    });
+
+                    should("not report the stalled delivery again", () -> {
+                        watchdog.check();
+                        assertThat(reports.getSentMessages()).hasSize(1);
+                        assertThat(compensator.mCompensated.get()).isEqualTo(1);
+                        gate.countDown();
+                    });
+
+                    should("release the compensation once the delivery finishes", () -> {
+                        gate.countDown();
+                        thread.join();
+
+                        assertThat(compensator.mReleased.get()).isEqualTo(1);
+                    });
+                });
+            });
+
+            when("a nested delivery has finished during a running delivery", () -> {
+                final CountDownLatch running = new CountDownLatch(1);
+                final CountDownLatch gate = new CountDownLatch(1);
+                final Thread thread = new Thread(() -> watchdog.intercept(actor, () -> {
+                    watchdog.intercept(new SpyActor<>(), () -> {});
+                    running.countDown();
+                    await(gate);
+                }));
+                thread.start();
+                running.await(5, TimeUnit.SECONDS);
+                watchdog.check();
+
+                should("still report the running delivery", () -> {
+                    assertThat(reports.getSentMessages()).hasSize(1);
+                    assertThat(reports.getSentMessages().get(0).getActor()).isSameAs(actor);
+                    gate.countDown();
+                });
+            });
+
+            when("a delivery has finished", () -> {
+                watchdog.intercept(actor, () -> {});
+                watchdog.check();
+
+                should("not report it", () -> {
+                    assertThat(reports.getSentMessages()).isEmpty();
+                    assertThat(compensator.mCompensated.get()).isEqualTo(0);
+                });
+            });
+        });
+    }
+
+    private static final class SpyCompensator implements Watchdog.Compensator {
+
+        final AtomicInteger mCompensated = new AtomicInteger(0);
+        final AtomicInteger mReleased = new AtomicInteger(0);
+
+        @Override
+        public void compensate() {
+            mCompensated.incrementAndGet();
+        }
+
+        @Override
+        public void release() {
+            mReleased.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor.io;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pool of direct {@link ByteBuffer ByteBuffers} of the same capacity. Direct buffers are
+ * expensive to allocate, but avoid an extra copy when used for I/O, so they should be reused.
+ *
+ * <p>The pool is lock-free and keeps at most the configured number of idle buffers; additional
+ * released buffers are left to the garbage collector.
+ */
+public final class BufferPool {
+
+    private final int mCapacity;
+    private final int mMaxIdle;
+
+    private final Queue<ByteBuffer> mIdle = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger mIdleCount = new AtomicInteger(0 /*initial value*/);
+
+    /**
+     * Creates a pool of direct {@link ByteBuffer ByteBuffers} with the given capacity.
+     *
+     * @param capacity the capacity of every buffer in bytes.
+     * @param maxIdle  the maximum number of idle buffers kept in the pool.
+     */
+    public BufferPool(final int capacity, final int maxIdle) {
+        if ((capacity < 1) || (maxIdle < 0)) {
+            throw new IllegalArgumentException("invalid pool size");
+        }
+
+        mCapacity = capacity;
+        mMaxIdle = maxIdle;
+    }
+
+    /** Returns the capacity of every buffer in bytes. */
+    public int getCapacity() {
+        return mCapacity;
+    }
+
+    /**
+     * Returns an idle {@link ByteBuffer} from the pool or allocates a new one. The returned buffer
+     * is cleared.
+     */
+    public ByteBuffer acquire() {
+        final ByteBuffer buffer = mIdle.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(mCapacity);
+        }
+
+        mIdleCount.decrementAndGet();
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Returns the given {@link ByteBuffer} to the pool. Buffers that are not direct or whose
+     * capacity differs from the pool's are ignored.
+     *
+     * <p>The pool does not keep track of the buffers it has {@link #acquire acquired}, so that
+     * releasing stays lock-free. Any other direct buffer of the same capacity is accepted too, and
+     * a buffer must not be released more than once, or it could be acquired twice.
+     *
+     * @param buffer the buffer that is not used anymore.
+     */
+    public void release(final ByteBuffer buffer) {
+        if (!buffer.isDirect() || (buffer.capacity() != mCapacity)) {
+            return;
+        }
+
+        if (mIdleCount.incrementAndGet() <= mMaxIdle) {
+            mIdle.add(buffer);
+        } else {
+            mIdleCount.decrementAndGet();
+        }
+    }
+}
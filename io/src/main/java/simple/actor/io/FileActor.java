@@ -0,0 +1,370 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor.io;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.FileChannel;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Set;
+
+import simple.actor.Actor;
+import simple.actor.Channel;
+import simple.actor.Context;
+
+/**
+ * An {@link Actor} that reads and writes a file without blocking the thread on which it receives
+ * {@link Request requests}.
+ *
+ * <p>Reads and writes are issued through an {@link AsynchronousFileChannel} and their {@link
+ * Completion completions} are sent to the {@link Channel} given in each request, usually the
+ * requesting {@code Actor}'s own {@code Channel}. Therefore, no thread delivering messages to
+ * {@code Actors} ever waits on the disk.
+ *
+ * <p>The file is opened when the actor is {@link #onStart started} and closed when it is {@link
+ * #onStop stopped}. If the file cannot be opened, all requests complete with the failure.
+ */
+public final class FileActor extends Actor<FileActor.Request> {
+
+    private final Path mPath;
+    private final Set<? extends OpenOption> mOptions;
+    @Nullable
+    private final BufferPool mPool;
+
+    @Nullable
+    private AsynchronousFileChannel mFile;
+    @Nullable
+    private Throwable mFailure;
+
+    /**
+     * Creates an actor that will open the given file with given options.
+     *
+     * @param path    the path of the file.
+     * @param options the options with which the file is opened.
+     * @param pool    the optional {@link BufferPool} from which buffers for {@link #read reads}
+     *                are acquired.
+     */
+    public FileActor(final Path path,
+                     final Set<? extends OpenOption> options,
+                     @Nullable final BufferPool pool) {
+        mPath = path;
+        mOptions = options;
+        mPool = pool;
+    }
+
+    /**
+     * Returns a request to read at most the given number of bytes from the given position. If the
+     * actor has a {@link BufferPool} and the size fits into its buffers, the read bytes will be
+     * stored in a pooled buffer, which should be {@link BufferPool#release released} after use.
+     */
+    public static Request read(final long position,
+                               final int size,
+                               final Channel<? super Completion> reply) {
+        return new Read(position, size, reply);
+    }
+
+    /** Returns a request to write all remaining bytes of the given buffer at the given position. */
+    public static Request write(final long position,
+                                final ByteBuffer buffer,
+                                final Channel<? super Completion> reply) {
+        return new Transfer(position, new ByteBuffer[]{buffer}, false, reply);
+    }
+
+    /**
+     * Returns a request to read bytes from the given position and store them in the given buffers,
+     * one after another, until all buffers are full or the end of file is reached.
+     */
+    public static Request scatter(final long position,
+                                  final ByteBuffer[] buffers,
+                                  final Channel<? super Completion> reply) {
+        return new Transfer(position, buffers.clone(), true, reply);
+    }
+
+    /**
+     * Returns a request to write all remaining bytes of the given buffers, one after another, at
+     * the given position.
+     */
+    public static Request gather(final long position,
+                                 final ByteBuffer[] buffers,
+                                 final Channel<? super Completion> reply) {
+        return new Transfer(position, buffers.clone(), false, reply);
+    }
+
+    /**
+     * Returns a request to map the given region of the file into memory for reading. Mapping is
+     * suited for large sequential scans, as the pages are read by the operating system on demand.
+     */
+    public static Request map(final long position,
+                              final long size,
+                              final Channel<? super Completion> reply) {
+        return new Mapping(position, size, reply);
+    }
+
+    @Override
+    protected void onMessage(final Request request) {
+        if (mFile == null) {
+            request.fail(mFailure);
+        } else {
+            request.execute(this, mFile);
+        }
+    }
+
+    @Override
+    protected void onStart(final Channel<Request> self, final Context context) {
+        try {
+            mFile = AsynchronousFileChannel.open(mPath, mOptions, null /*default executor*/);
+        } catch (final IOException | RuntimeException e) {
+            mFailure = e;
+        }
+    }
+
+    @Override
+    protected void onStop() {
+        if (mFile != null) {
+            try {
+                mFile.close();
+            } catch (final IOException ignored) {
+                // nothing can be done if the file fails to close
+            }
+            mFile = null;
+        }
+    }
+
+    /** Returns a buffer of at least the given size, from the {@link BufferPool} if possible. */
+    ByteBuffer allocate(final int size) {
+        if ((mPool != null) && (size <= mPool.getCapacity())) {
+            final ByteBuffer buffer = mPool.acquire();
+            buffer.limit(size);
+            return buffer;
+        }
+        return ByteBuffer.allocate(size);
+    }
+
+    /** A request sent to a {@link FileActor}. */
+    public abstract static class Request {
+
+        private final Channel<? super Completion> mReply;
+
+        Request(final Channel<? super Completion> reply) {
+            mReply = reply;
+        }
+
+        /** Issues the request on the given file. */
+        abstract void execute(FileActor actor, AsynchronousFileChannel file);
+
+        /** Sends a successful completion with given buffers and number of transferred bytes. */
+        void complete(final ByteBuffer[] buffers, final long transferred) {
+            mReply.send(new Completion(this, buffers, transferred, null));
+        }
+
+        /** Sends a failed completion. */
+        void fail(@Nullable final Throwable failure) {
+            mReply.send(new Completion(this, new ByteBuffer[0], 0,
+                    (failure == null) ? new IOException("file is not open") : failure));
+        }
+    }
+
+    /** The result of a {@link Request} sent to a {@link FileActor}. */
+    public static final class Completion {
+
+        private final Request mRequest;
+        private final ByteBuffer[] mBuffers;
+        private final long mTransferred;
+        @Nullable
+        private final Throwable mFailure;
+
+        Completion(final Request request,
+                   final ByteBuffer[] buffers,
+                   final long transferred,
+                   @Nullable final Throwable failure) {
+            mRequest = request;
+            mBuffers = buffers;
+            mTransferred = transferred;
+            mFailure = failure;
+        }
+
+        /** Returns the completed {@link Request}. */
+        public Request getRequest() {
+            return mRequest;
+        }
+
+        /**
+         * Returns the buffers of the request. For reads, the buffers are flipped so that their
+         * remaining bytes are the read bytes.
+         */
+        public ByteBuffer[] getBuffers() {
+            return mBuffers.clone();
+        }
+
+        /** Returns the number of transferred bytes. */
+        public long getTransferred() {
+            return mTransferred;
+        }
+
+        /** Returns the reason why the request failed or {@code null} if it succeeded. */
+        @Nullable
+        public Throwable getFailure() {
+            return mFailure;
+        }
+
+        /** Returns {@code true} if the request succeeded. */
+        public boolean isSuccessful() {
+            return mFailure == null;
+        }
+    }
+
+    /** A request to read into a single newly acquired buffer. */
+    private static final class Read extends Request {
+
+        private final long mPosition;
+        private final int mSize;
+
+        Read(final long position, final int size, final Channel<? super Completion> reply) {
+            super(reply);
+            mPosition = position;
+            mSize = size;
+        }
+
+        @Override
+        void execute(final FileActor actor, final AsynchronousFileChannel file) {
+            new Transfer(mPosition, new ByteBuffer[]{actor.allocate(mSize)}, true, this)
+                    .execute(actor, file);
+        }
+    }
+
+    /**
+     * A request to read into or write from multiple buffers, one after another. Each buffer is
+     * transferred with as many asynchronous operations as needed, each issued from the completion
+     * of the previous one.
+     */
+    private static final class Transfer extends Request
+            implements CompletionHandler<Integer, AsynchronousFileChannel> {
+
+        private final ByteBuffer[] mBuffers;
+        private final boolean mRead;
+        @Nullable
+        private final Request mOrigin;
+
+        private long mPosition;
+        private long mTransferred = 0;
+        private int mCurrent = 0;
+
+        Transfer(final long position,
+                 final ByteBuffer[] buffers,
+                 final boolean read,
+                 final Channel<? super Completion> reply) {
+            super(reply);
+            mPosition = position;
+            mBuffers = buffers;
+            mRead = read;
+            mOrigin = null;
+        }
+
+        Transfer(final long position,
+                 final ByteBuffer[] buffers,
+                 final boolean read,
+                 final Request origin) {
+            super(origin.mReply);
+            mPosition = position;
+            mBuffers = buffers;
+            mRead = read;
+            mOrigin = origin;
+        }
+
+        @Override
+        void execute(final FileActor actor, final AsynchronousFileChannel file) {
+            next(file);
+        }
+
+        @Override
+        public void completed(final Integer result, final AsynchronousFileChannel file) {
+            if (result < 0) {
+                finish();
+                return;
+            }
+
+            mPosition += result;
+            mTransferred += result;
+            next(file);
+        }
+
+        @Override
+        public void failed(final Throwable failure, final AsynchronousFileChannel file) {
+            origin().fail(failure);
+        }
+
+        /** Issues the next operation or finishes the transfer if all buffers are done. */
+        private void next(final AsynchronousFileChannel file) {
+            while ((mCurrent < mBuffers.length) && !mBuffers[mCurrent].hasRemaining()) {
+                mCurrent++;
+            }
+
+            if (mCurrent >= mBuffers.length) {
+                finish();
+            } else if (mRead) {
+                file.read(mBuffers[mCurrent], mPosition, file, this);
+            } else {
+                file.write(mBuffers[mCurrent], mPosition, file, this);
+            }
+        }
+
+        private void finish() {
+            if (mRead) {
+                for (final ByteBuffer buffer : mBuffers) {
+                    buffer.flip();
+                }
+            }
+            origin().complete(mBuffers, mTransferred);
+        }
+
+        private Request origin() {
+            return (mOrigin == null) ? this : mOrigin;
+        }
+    }
+
+    /** A request to map a region of the file into memory. */
+    private static final class Mapping extends Request {
+
+        private final long mPosition;
+        private final long mSize;
+
+        Mapping(final long position, final long size, final Channel<? super Completion> reply) {
+            super(reply);
+            mPosition = position;
+            mSize = size;
+        }
+
+        @Override
+        void execute(final FileActor actor, final AsynchronousFileChannel file) {
+            final Set<StandardOpenOption> read = Collections.singleton(StandardOpenOption.READ);
+            try (FileChannel channel = FileChannel.open(actor.mPath, read)) {
+                final ByteBuffer mapped =
+                        channel.map(FileChannel.MapMode.READ_ONLY, mPosition, mSize);
+                complete(new ByteBuffer[]{mapped}, mSize);
+            } catch (final IOException | RuntimeException e) {
+                fail(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor.io;
+
+import org.junit.runner.RunWith;
+
+import java.nio.ByteBuffer;
+
+import alioli.Scenario;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/** Tests for {@link BufferPool}. */
+@RunWith(Scenario.Runner.class)
+public class BufferPoolTest extends Scenario {
+    {
+        subject("buffer pool", () -> {
+            final BufferPool pool = new BufferPool(16 /*capacity*/, 1 /*max idle*/);
+
+            should("acquire a cleared direct buffer of the configured capacity", () -> {
+                final ByteBuffer buffer = pool.acquire();
+
+                assertThat(buffer.isDirect()).isTrue();
+                assertThat(buffer.capacity()).isEqualTo(16);
+                assertThat(buffer.remaining()).isEqualTo(16);
+            });
+
+            should("reuse a released buffer", () -> {
+                final ByteBuffer buffer = pool.acquire();
+                buffer.put((byte) 1);
+                pool.release(buffer);
+
+                final ByteBuffer reused = pool.acquire();
+                assertThat(reused).isSameAs(buffer);
+                assertThat(reused.position()).isEqualTo(0);
+            });
+
+            should("keep at most the configured number of idle buffers", () -> {
+                final ByteBuffer first = pool.acquire();
+                final ByteBuffer second = pool.acquire();
+                pool.release(first);
+                pool.release(second);
+
+                assertThat(pool.acquire()).isSameAs(first);
+                assertThat(pool.acquire()).isNotSameAs(second);
+            });
+
+            should("ignore buffers that are not direct", () -> {
+                final ByteBuffer buffer = ByteBuffer.allocate(16);
+                pool.release(buffer);
+
+                assertThat(pool.acquire()).isNotSameAs(buffer);
+            });
+
+            should("ignore direct buffers of another capacity", () -> {
+                final ByteBuffer buffer = ByteBuffer.allocateDirect(32);
+                pool.release(buffer);
+
+                assertThat(pool.acquire()).isNotSameAs(buffer);
+            });
+        });
+    }
+}
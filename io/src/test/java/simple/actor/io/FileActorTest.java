@@ -0,0 +1,147 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor.io;
+
+import org.junit.runner.RunWith;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import alioli.Scenario;
+import simple.actor.Channel;
+import simple.actor.System;
+import simple.actor.testing.SameThreadRunner;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/** Tests for {@link FileActor}. */
+@RunWith(Scenario.Runner.class)
+public class FileActorTest extends Scenario {
+    {
+        subject("file actor", () -> {
+            final Path path = Files.createTempFile("file-actor", ".bin");
+            path.toFile().deleteOnExit();
+            Files.write(path, "hello world".getBytes(StandardCharsets.UTF_8));
+            final BufferPool pool = new BufferPool(64, 1);
+            final Channel<FileActor.Request> file = new System(new SameThreadRunner()).register(
+                    new FileActor(path, EnumSet.of(StandardOpenOption.READ,
+                            StandardOpenOption.WRITE), pool));
+            final Completions completions = new Completions();
+
+            should("read bytes into a pooled buffer", () -> {
+                file.send(FileActor.read(6, 5, completions));
+                final FileActor.Completion completion = completions.take();
+
+                assertThat(completion.isSuccessful()).isTrue();
+                assertThat(completion.getTransferred()).isEqualTo(5);
+                final ByteBuffer buffer = completion.getBuffers()[0];
+                assertThat(buffer.isDirect()).isTrue();
+                assertThat(string(buffer)).isEqualTo("world");
+            });
+
+            should("write bytes", () -> {
+                file.send(FileActor.write(0, utf8("HELLO"), completions));
+
+                assertThat(completions.take().getTransferred()).isEqualTo(5);
+                assertThat(new String(Files.readAllBytes(path), StandardCharsets.UTF_8))
+                        .isEqualTo("HELLO world");
+            });
+
+            should("scatter read bytes into multiple buffers", () -> {
+                final ByteBuffer[] buffers = {ByteBuffer.allocate(6), ByteBuffer.allocate(10)};
+                file.send(FileActor.scatter(0, buffers, completions));
+                final FileActor.Completion completion = completions.take();
+
+                assertThat(completion.getTransferred()).isEqualTo(11);
+                assertThat(string(completion.getBuffers()[0])).isEqualTo("hello ");
+                assertThat(string(completion.getBuffers()[1])).isEqualTo("world");
+            });
+
+            should("gather write bytes from multiple buffers", () -> {
+                final ByteBuffer[] buffers = {utf8("HEL"), utf8("LO")};
+                file.send(FileActor.gather(0, buffers, completions));
+
+                assertThat(completions.take().getTransferred()).isEqualTo(5);
+                assertThat(new String(Files.readAllBytes(path), StandardCharsets.UTF_8))
+                        .isEqualTo("HELLO world");
+            });
+
+            should("map a region of the file into memory", () -> {
+                file.send(FileActor.map(6, 5, completions));
+
+                assertThat(string(completions.take().getBuffers()[0])).isEqualTo("world");
+            });
+
+            when("stopped", () -> {
+                file.stop();
+
+                should("fail to send a request", () -> {
+                    assertThat(file.send(FileActor.read(0, 1, completions))).isFalse();
+                });
+            });
+        });
+
+        subject("file actor for a missing file", () -> {
+            final Path path = Files.createTempDirectory("file-actor").resolve("missing");
+            final Channel<FileActor.Request> file = new System(new SameThreadRunner())
+                    .register(new FileActor(path, EnumSet.of(StandardOpenOption.READ), null));
+            final Completions completions = new Completions();
+
+            should("fail all requests", () -> {
+                file.send(FileActor.read(0, 1, completions));
+
+                assertThat(completions.take().getFailure()).isNotNull();
+            });
+        });
+    }
+
+    private static ByteBuffer utf8(final String value) {
+        return ByteBuffer.wrap(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String string(final ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static final class Completions implements Channel<FileActor.Completion> {
+
+        private final BlockingQueue<FileActor.Completion> mReceived = new LinkedBlockingQueue<>();
+
+        @Override
+        public boolean send(final FileActor.Completion completion) {
+            return mReceived.add(completion);
+        }
+
+        @Override
+        public void stop() {}
+
+        FileActor.Completion take() throws InterruptedException {
+            final FileActor.Completion completion = mReceived.poll(5, TimeUnit.SECONDS);
+            assertThat(completion).isNotNull();
+            return completion;
+        }
+    }
+}
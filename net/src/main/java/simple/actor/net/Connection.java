@@ -0,0 +1,204 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor.net;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import simple.actor.Channel;
+
+/**
+ * A {@link Channel} that writes sent {@link ByteBuffer ByteBuffers} to a connection accepted by a
+ * {@link Server}.
+ *
+ * <p>Sent {@code ByteBuffers} are queued and written by the server's selector thread once the
+ * socket is ready for writing. All {@code ByteBuffers} queued by then are coalesced and written
+ * with a single gathering write. The {@code ByteBuffers} must not be modified after being sent.
+ *
+ * <p>When stopped, the connection is closed after all previously sent {@code ByteBuffers} are
+ * written.
+ */
+public final class Connection implements Channel<ByteBuffer> {
+
+    private static final int MAX_GATHER = 64;
+
+    private final Server mServer;
+    private final SocketChannel mSocket;
+    private final SelectionKey mKey;
+
+    private final Queue<ByteBuffer> mPending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean mFlushing = new AtomicBoolean(false /*initial value*/);
+    private volatile boolean mStopped = false;
+
+    /** Accessed only from the selector thread. */
+    private final Queue<ByteBuffer> mWriting = new ArrayDeque<>();
+    @Nullable
+    private Channel<ByteBuffer> mInbound;
+    private boolean mClosed = false;
+
+    Connection(final Server server, final SocketChannel socket, final SelectionKey key) {
+        mServer = server;
+        mSocket = socket;
+        mKey = key;
+    }
+
+    /** Returns the address of the remote end of the connection. */
+    public SocketAddress getRemoteAddress() throws IOException {
+        return mSocket.getRemoteAddress();
+    }
+
+    /**
+     * Queues the given {@link ByteBuffer} to be written to the connection.
+     *
+     * <p>Note that if connection has been stopped, the send request will be ignored and the {@code
+     * false} value will be returned.
+     */
+    @Override
+    public boolean send(final ByteBuffer buffer) {
+        if (mStopped) {
+            return false;
+        }
+
+        mPending.add(buffer);
+        if (mFlushing.compareAndSet(false, true)) {
+            mServer.execute(this::enableWrites);
+        }
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The connection will be closed after all previously sent {@link ByteBuffer ByteBuffers}
+     * are written.
+     */
+    @Override
+    public void stop() {
+        if (!mStopped) {
+            mStopped = true;
+            mServer.execute(this::closeIfFlushed);
+        }
+    }
+
+    /** Sets the {@link Channel} to which received bytes are sent. */
+    void open(final Channel<ByteBuffer> inbound) {
+        mInbound = inbound;
+    }
+
+    /** Reads available bytes from the socket and sends them to the inbound {@link Channel}. */
+    void read() {
+        final ByteBuffer slab = mServer.slab();
+        final int start = slab.position();
+        final int read;
+        try {
+            read = mSocket.read(slab);
+        } catch (final IOException e) {
+            close();
+            return;
+        }
+
+        if (read < 0) {
+            mKey.interestOps(mKey.interestOps() & ~SelectionKey.OP_READ);
+            if (mInbound != null) {
+                mInbound.stop();
+            }
+            stop();
+        } else if ((read > 0) && (mInbound != null)) {
+            final ByteBuffer slice = slab.duplicate();
+            slice.position(start);
+            slice.limit(start + read);
+            mInbound.send(slice.slice().asReadOnlyBuffer());
+        }
+    }
+
+    /** Writes queued {@link ByteBuffer ByteBuffers} to the socket with gathering writes. */
+    void flush() {
+        ByteBuffer buffer;
+        while ((buffer = mPending.poll()) != null) {
+            mWriting.add(buffer);
+        }
+
+        try {
+            while (!mWriting.isEmpty()) {
+                final int count = Math.min(mWriting.size(), MAX_GATHER);
+                final ByteBuffer[] buffers = new ByteBuffer[count];
+                final Iterator<ByteBuffer> writing = mWriting.iterator();
+                for (int i = 0; i < count; i++) {
+                    buffers[i] = writing.next();
+                }
+
+                mSocket.write(buffers);
+                while (!mWriting.isEmpty() && !mWriting.peek().hasRemaining()) {
+                    mWriting.remove();
+                }
+                if (buffers[count - 1].hasRemaining()) {
+                    return;
+                }
+            }
+        } catch (final IOException e) {
+            close();
+            return;
+        }
+
+        mKey.interestOps(mKey.interestOps() & ~SelectionKey.OP_WRITE);
+        mFlushing.set(false);
+        if (!mPending.isEmpty() && mFlushing.compareAndSet(false, true)) {
+            enableWrites();
+        } else {
+            closeIfFlushed();
+        }
+    }
+
+    /** Closes the socket and stops the inbound {@link Channel}. */
+    void close() {
+        if (!mClosed) {
+            mClosed = true;
+            mStopped = true;
+            mKey.cancel();
+            try {
+                mSocket.close();
+            } catch (final IOException ignored) {
+                // nothing can be done if the socket fails to close
+            }
+            if (mInbound != null) {
+                mInbound.stop();
+            }
+        }
+    }
+
+    private void enableWrites() {
+        if (mKey.isValid()) {
+            mKey.interestOps(mKey.interestOps() | SelectionKey.OP_WRITE);
+        }
+    }
+
+    private void closeIfFlushed() {
+        if (mStopped && mWriting.isEmpty() && mPending.isEmpty()) {
+            close();
+        }
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor.net;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Function;
+
+import simple.actor.Actor;
+import simple.actor.Channel;
+import simple.actor.Context;
+
+/**
+ * A TCP server that delivers received bytes to {@link Actor Actors}, one {@code Actor} per
+ * connection.
+ *
+ * <p>A single selector thread owns accepting of connections and reading and writing of their
+ * sockets. For every accepted connection, an {@code Actor} is created by the given factory and
+ * registered with the given {@link Context}. The received bytes are delivered to the {@code Actor}
+ * as read-only {@link ByteBuffer} slices of larger direct buffers, so the bytes are never copied
+ * after being read from the socket. The {@code Actor} writes responses by sending them to the
+ * {@link Connection}.
+ */
+public final class Server {
+
+    private static final int SLAB_SIZE = 64 * 1024;
+    private static final int MIN_READ_SIZE = 4 * 1024;
+
+    private final Context mContext;
+    private final Function<? super Connection, ? extends Actor<ByteBuffer>> mFactory;
+
+    private final Selector mSelector;
+    private final ServerSocketChannel mServer;
+    private final Queue<Runnable> mTasks = new ConcurrentLinkedQueue<>();
+    private volatile boolean mStopped = false;
+
+    /** Accessed only from the selector thread. */
+    @Nullable
+    private ByteBuffer mSlab;
+
+    /**
+     * Creates a server listening on the given address.
+     *
+     * @param context the {@link Context} with which connection {@link Actor Actors} are registered.
+     * @param address the local address to listen on.
+     * @param factory the function that creates an {@code Actor} for every accepted {@link
+     *                Connection}.
+     *
+     * @throws IOException if the server cannot listen on the address.
+     */
+    public Server(final Context context,
+                  final SocketAddress address,
+                  final Function<? super Connection, ? extends Actor<ByteBuffer>> factory)
+            throws IOException {
+        this(context, address, factory, Executors.defaultThreadFactory());
+    }
+
+    /**
+     * Creates a server listening on the given address, whose selector thread is created by the
+     * given {@link ThreadFactory}.
+     *
+     * @param context the {@link Context} with which connection {@link Actor Actors} are registered.
+     * @param address the local address to listen on.
+     * @param factory the function that creates an {@code Actor} for every accepted {@link
+     *                Connection}.
+     * @param threads the {@code ThreadFactory} that creates the selector thread.
+     *
+     * @throws IOException if the server cannot listen on the address.
+     */
+    public Server(final Context context,
+                  final SocketAddress address,
+                  final Function<? super Connection, ? extends Actor<ByteBuffer>> factory,
+                  final ThreadFactory threads)
+            throws IOException {
+        mContext = context;
+        mFactory = factory;
+        mSelector = Selector.open();
+        mServer = ServerSocketChannel.open();
+        try {
+            mServer.bind(address);
+            mServer.configureBlocking(false);
+            mServer.register(mSelector, SelectionKey.OP_ACCEPT);
+        } catch (final IOException e) {
+            mServer.close();
+            mSelector.close();
+            throw e;
+        }
+        threads.newThread(this::loop).start();
+    }
+
+    /** Returns the local address on which the server listens. */
+    public SocketAddress getAddress() throws IOException {
+        return mServer.getLocalAddress();
+    }
+
+    /**
+     * Stops the server. All connections are closed immediately and their {@link Actor Actors} are
+     * {@link Channel#stop stopped}.
+     */
+    public void stop() {
+        mStopped = true;
+        mSelector.wakeup();
+    }
+
+    /** Executes the given task on the selector thread. */
+    void execute(final Runnable task) {
+        mTasks.add(task);
+        mSelector.wakeup();
+    }
+
+    /**
+     * Returns a direct buffer with enough remaining space for the next read. Accessed only from the
+     * selector thread.
+     */
+    ByteBuffer slab() {
+        if ((mSlab == null) || (mSlab.remaining() < MIN_READ_SIZE)) {
+            mSlab = ByteBuffer.allocateDirect(SLAB_SIZE);
+        }
+        return mSlab;
+    }
+
+    /** Selects ready sockets and handles them until the server is stopped. */
+    private void loop() {
+        try {
+            while (!mStopped) {
+                mSelector.select();
+
+                Runnable task;
+                while ((task = mTasks.poll()) != null) {
+                    task.run();
+                }
+
+                final Iterator<SelectionKey> keys = mSelector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    final SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        final Connection connection = (Connection) key.attachment();
+                        try {
+                            if (key.isReadable()) {
+                                connection.read();
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                connection.flush();
+                            }
+                        } catch (final RuntimeException ignored) {
+                            // only this connection failed
+                            connection.close();
+                        }
+                    }
+                }
+            }
+        } catch (final IOException ignored) {
+            // the selector failed; close everything below
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * Accepts a pending connection and registers an {@link Actor} for it. If accepting the
+     * connection fails, including if the factory or the {@link Context} throws, only the accepted
+     * socket is closed and the server keeps serving all other connections.
+     */
+    private void accept() {
+        @Nullable SocketChannel socket = null;
+        try {
+            socket = mServer.accept();
+            if (socket == null) {
+                return;
+            }
+
+            socket.configureBlocking(false);
+            final SelectionKey key = socket.register(mSelector, SelectionKey.OP_READ);
+            final Connection connection = new Connection(this, socket, key);
+            key.attach(connection);
+            connection.open(mContext.register(mFactory.apply(connection)));
+        } catch (final IOException | RuntimeException ignored) {
+            if (socket != null) {
+                try {
+                    socket.close();
+                } catch (final IOException alsoIgnored) {
+                    // nothing can be done if the socket fails to close
+                }
+            }
+        }
+    }
+
+    /** Closes the selector, the server socket, and all connections. */
+    private void close() {
+        for (final SelectionKey key : mSelector.keys()) {
+            if (key.attachment() instanceof Connection) {
+                ((Connection) key.attachment()).close();
+            }
+        }
+
+        try {
+            mServer.close();
+        } catch (final IOException ignored) {
+            // nothing can be done if the server socket fails to close
+        }
+        try {
+            mSelector.close();
+        } catch (final IOException ignored) {
+            // nothing can be done if the selector fails to close
+        }
+    }
+}
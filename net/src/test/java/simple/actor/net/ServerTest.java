@@ -0,0 +1,156 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor.net;
+
+import org.junit.runner.RunWith;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import alioli.Scenario;
+import simple.actor.Actor;
+import simple.actor.System;
+import simple.actor.testing.SameThreadRunner;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/** Tests for {@link Server}. */
+@RunWith(Scenario.Runner.class)
+public class ServerTest extends Scenario {
+    {
+        subject("echo server on loopback", () -> {
+            final Server server = new Server(new System(new SameThreadRunner()),
+                    new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), Echo::new,
+                    runnable -> {
+                        final Thread thread = new Thread(runnable);
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            final Socket client = new Socket();
+            client.setSoTimeout(5000);
+            client.connect(server.getAddress(), 5000);
+
+            should("deliver received bytes to the connection's actor", () -> {
+                write(client, "hello");
+
+                assertThat(read(client, 5)).isEqualTo("hello");
+                client.close();
+                server.stop();
+            });
+
+            should("write all responses of the actor in order", () -> {
+                write(client, "repeat");
+
+                assertThat(read(client, 12)).isEqualTo("repeatrepeat");
+                client.close();
+                server.stop();
+            });
+
+            should("close the connection when the actor stops it", () -> {
+                write(client, "stop");
+
+                assertThat(read(client, 4)).isEqualTo("stop");
+                assertThat(client.getInputStream().read()).isEqualTo(-1);
+                client.close();
+                server.stop();
+            });
+        });
+
+        subject("server whose factory fails once", () -> {
+            final AtomicBoolean failed = new AtomicBoolean(false);
+            final Server server = new Server(new System(new SameThreadRunner()),
+                    new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), connection -> {
+                        if (failed.compareAndSet(false, true)) {
+                            throw new IllegalStateException("factory failed");
+                        }
+                        return new Echo(connection);
+                    },
+                    runnable -> {
+                        final Thread thread = new Thread(runnable);
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+
+            should("close only the failed connection and keep accepting others", () -> {
+                final Socket rejected = new Socket();
+                rejected.setSoTimeout(5000);
+                rejected.connect(server.getAddress(), 5000);
+                assertThat(rejected.getInputStream().read()).isEqualTo(-1);
+                rejected.close();
+
+                final Socket client = new Socket();
+                client.setSoTimeout(5000);
+                client.connect(server.getAddress(), 5000);
+                write(client, "hello");
+
+                assertThat(read(client, 5)).isEqualTo("hello");
+                client.close();
+                server.stop();
+            });
+        });
+    }
+
+    private static void write(final Socket socket, final String value) throws Exception {
+        final OutputStream output = socket.getOutputStream();
+        output.write(value.getBytes(StandardCharsets.UTF_8));
+        output.flush();
+    }
+
+    private static String read(final Socket socket, final int length) throws Exception {
+        final InputStream input = socket.getInputStream();
+        final byte[] bytes = new byte[length];
+        int read = 0;
+        while (read < length) {
+            final int count = input.read(bytes, read, length - read);
+            if (count < 0) {
+                break;
+            }
+            read += count;
+        }
+        return new String(bytes, 0, read, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Echoes received bytes; writes them twice if they are "repeat" and stops the connection if
+     * they are "stop".
+     */
+    private static final class Echo extends Actor<ByteBuffer> {
+
+        private final Connection mConnection;
+
+        Echo(final Connection connection) {
+            mConnection = connection;
+        }
+
+        @Override
+        protected void onMessage(final ByteBuffer buffer) {
+            final String value = StandardCharsets.UTF_8.decode(buffer.duplicate()).toString();
+            mConnection.send(buffer.duplicate());
+            if ("repeat".equals(value)) {
+                mConnection.send(buffer.duplicate());
+            } else if ("stop".equals(value)) {
+                mConnection.stop();
+            }
+        }
+    }
+}
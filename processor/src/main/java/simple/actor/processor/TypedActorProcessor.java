@@ -0,0 +1,268 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+import simple.actor.TypedActor;
+
+/**
+ * Generates the typed actor API for every interface annotated with {@link TypedActor}.
+ *
+ * <p>Every abstract method of the interface gets an integer tag, in declaration order. The
+ * generated proxy encodes a call as a single {@code Call} object with the tag and the arguments,
+ * and the generated actor dispatches it with a {@code switch} on the tag, so neither side uses
+ * reflection, {@link java.lang.reflect.Proxy} or {@code instanceof} chains.
+ */
+public final class TypedActorProcessor extends AbstractProcessor {
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton(TypedActor.class.getCanonicalName());
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(final Set<? extends TypeElement> annotations,
+                           final RoundEnvironment environment) {
+        for (final Element element : environment.getElementsAnnotatedWith(TypedActor.class)) {
+            if (element.getKind() != ElementKind.INTERFACE) {
+                error(element, "@TypedActor can only be applied to interfaces");
+            } else {
+                generate((TypeElement) element);
+            }
+        }
+        return true;
+    }
+
+    private void generate(final TypeElement type) {
+        if (!type.getTypeParameters().isEmpty()) {
+            error(type, "@TypedActor interfaces must not be generic");
+            return;
+        }
+
+        final List<ExecutableElement> methods = new ArrayList<>();
+        boolean valid = true;
+        for (final ExecutableElement method :
+                ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type))) {
+            if ((method.getEnclosingElement().getKind() != ElementKind.INTERFACE)
+                    || !method.getModifiers().contains(Modifier.ABSTRACT)) {
+                continue;
+            }
+            if (method.getReturnType().getKind() != TypeKind.VOID) {
+                valid = error(method, "@TypedActor methods must return void");
+            } else if (!method.getTypeParameters().isEmpty()) {
+                valid = error(method, "@TypedActor methods must not be generic");
+            } else if (!method.getThrownTypes().isEmpty()) {
+                valid = error(method, "@TypedActor methods must not declare exceptions");
+            } else {
+                methods.add(method);
+            }
+        }
+        if (!valid) {
+            return;
+        }
+
+        final PackageElement enclosing = processingEnv.getElementUtils().getPackageOf(type);
+        final String pkg = enclosing.isUnnamed() ? "" : enclosing.getQualifiedName().toString();
+        final String name = flatName(type);
+        int arity = 0;
+        for (final ExecutableElement method : methods) {
+            arity = Math.max(arity, method.getParameters().size());
+        }
+
+        write(type, pkg, name + "Actor", actor(type, pkg, name, methods, arity));
+        write(type, pkg, name + "Proxy", proxy(type, pkg, name, methods, arity));
+    }
+
+    private static String actor(final TypeElement type,
+                                final String pkg,
+                                final String name,
+                                final List<ExecutableElement> methods,
+                                final int arity) {
+        final StringBuilder source = header(pkg);
+        source.append("/** An {@link simple.actor.Actor} that dispatches calls of {@link ")
+                .append(type.getQualifiedName()).append("}. */\n")
+                .append("public abstract class ").append(name).append("Actor\n")
+                .append("        extends simple.actor.Actor<").append(name).append("Actor.Call>\n")
+                .append("        implements ").append(type.getQualifiedName()).append(" {\n\n");
+
+        source.append("    @Override\n")
+                .append("    @SuppressWarnings(\"unchecked\")\n")
+                .append("    protected final void onMessage(final Call call) {\n")
+                .append("        switch (call.mTag) {\n");
+        for (int tag = 0; tag < methods.size(); tag++) {
+            final ExecutableElement method = methods.get(tag);
+            source.append("            case ").append(tag).append(":\n")
+                    .append("                ").append(method.getSimpleName()).append('(');
+            final List<? extends VariableElement> parameters = method.getParameters();
+            for (int i = 0; i < parameters.size(); i++) {
+                if (i > 0) {
+                    source.append(", ");
+                }
+                source.append('(').append(parameters.get(i).asType()).append(") call.mArg")
+                        .append(i);
+            }
+            source.append(");\n")
+                    .append("                break;\n");
+        }
+        source.append("            default:\n")
+                .append("                throw new IllegalArgumentException(")
+                .append("\"unknown tag \" + call.mTag);\n")
+                .append("        }\n")
+                .append("    }\n\n");
+
+        source.append("    /** A call of one of the methods, identified by its tag. */\n")
+                .append("    public static final class Call {\n\n")
+                .append("        final int mTag;\n");
+        for (int i = 0; i < arity; i++) {
+            source.append("        final Object mArg").append(i).append(";\n");
+        }
+        source.append("\n        Call(final int tag");
+        for (int i = 0; i < arity; i++) {
+            source.append(", final Object arg").append(i);
+        }
+        source.append(") {\n")
+                .append("            mTag = tag;\n");
+        for (int i = 0; i < arity; i++) {
+            source.append("            mArg").append(i).append(" = arg").append(i).append(";\n");
+        }
+        source.append("        }\n")
+                .append("    }\n")
+                .append("}\n");
+        return source.toString();
+    }
+
+    private static String proxy(final TypeElement type,
+                                final String pkg,
+                                final String name,
+                                final List<ExecutableElement> methods,
+                                final int arity) {
+        final String channel = "simple.actor.Channel<? super " + name + "Actor.Call>";
+        final StringBuilder source = header(pkg);
+        source.append("/** A {@link ").append(type.getQualifiedName())
+                .append("} that sends its calls to a {@link simple.actor.Channel}. */\n")
+                .append("public final class ").append(name).append("Proxy implements ")
+                .append(type.getQualifiedName()).append(" {\n\n")
+                .append("    private final ").append(channel).append(" mChannel;\n\n")
+                .append("    public ").append(name).append("Proxy(final ").append(channel)
+                .append(" channel) {\n")
+                .append("        if (channel == null) {\n")
+                .append("            throw new IllegalStateException(")
+                .append("\"channel should not have been null\");\n")
+                .append("        }\n")
+                .append("        mChannel = channel;\n")
+                .append("    }\n");
+
+        for (int tag = 0; tag < methods.size(); tag++) {
+            final ExecutableElement method = methods.get(tag);
+            final List<? extends VariableElement> parameters = method.getParameters();
+            source.append("\n    @Override\n")
+                    .append("    public void ").append(method.getSimpleName()).append('(');
+            for (int i = 0; i < parameters.size(); i++) {
+                if (i > 0) {
+                    source.append(", ");
+                }
+                source.append("final ").append(parameter(method, parameters.get(i).asType(), i))
+                        .append(" arg").append(i);
+            }
+            source.append(") {\n")
+                    .append("        mChannel.send(new ").append(name).append("Actor.Call(")
+                    .append(tag);
+            for (int i = 0; i < arity; i++) {
+                source.append(", ").append((i < parameters.size()) ? ("arg" + i) : "null");
+            }
+            source.append("));\n")
+                    .append("    }\n");
+        }
+        source.append("}\n");
+        return source.toString();
+    }
+
+    private static String parameter(final ExecutableElement method,
+                                    final TypeMirror type,
+                                    final int index) {
+        return (method.isVarArgs() && (index == (method.getParameters().size() - 1)))
+                ? (((ArrayType) type).getComponentType() + "...")
+                : type.toString();
+    }
+
+    private static StringBuilder header(final String pkg) {
+        final StringBuilder source = new StringBuilder();
+        source.append("// Generated by ").append(TypedActorProcessor.class.getName())
+                .append("; do not edit.\n");
+        if (!pkg.isEmpty()) {
+            source.append("package ").append(pkg).append(";\n");
+        }
+        return source.append('\n');
+    }
+
+    private static String flatName(final TypeElement type) {
+        final StringBuilder name = new StringBuilder(type.getSimpleName());
+        Element enclosing = type.getEnclosingElement();
+        while (!(enclosing instanceof PackageElement)) {
+            name.insert(0, enclosing.getSimpleName());
+            enclosing = enclosing.getEnclosingElement();
+        }
+        return name.toString();
+    }
+
+    private void write(final TypeElement type,
+                       final String pkg,
+                       final String name,
+                       final String source) {
+        final String qualified = pkg.isEmpty() ? name : (pkg + '.' + name);
+        try (final Writer writer =
+                     processingEnv.getFiler().createSourceFile(qualified, type).openWriter()) {
+            writer.write(source);
+        } catch (final IOException e) {
+            error(type, "could not write " + qualified + ": " + e.getMessage());
+        }
+    }
+
+    private boolean error(final Element element, final String message) {
+        final Messager messager = processingEnv.getMessager();
+        messager.printMessage(Diagnostic.Kind.ERROR, message, element);
+        return false;
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor.processor;
+
+import java.util.List;
+
+import simple.actor.TypedActor;
+
+/** An interface used to test {@link TypedActorProcessor}. */
+@TypedActor
+public interface Greeter {
+
+    void greet(String name);
+
+    void add(int first, long second);
+
+    void reset();
+
+    void greetAll(List<String> names);
+
+    void log(String format, Object... arguments);
+
+    default void greetTwice(final String name) {
+        greet(name);
+        greet(name);
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor.processor;
+
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import alioli.Scenario;
+import simple.actor.Channel;
+import simple.actor.System;
+import simple.actor.testing.SameThreadRunner;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/** Tests for {@link TypedActorProcessor}. */
+@RunWith(Scenario.Runner.class)
+public class TypedActorProcessorTest extends Scenario {
+    {
+        subject("generated proxy of a registered actor", () -> {
+            final System system = new System(new SameThreadRunner());
+            final RecordingGreeter actor = new RecordingGreeter();
+            final Channel<GreeterActor.Call> channel = system.register(actor);
+            final Greeter greeter = new GreeterProxy(channel);
+
+            should("dispatch calls to the actor's methods", () -> {
+                greeter.greet("Alice");
+                greeter.add(1, 2L);
+                greeter.reset();
+                greeter.greetAll(Arrays.asList("Bob", "Carol"));
+
+                assertThat(actor.getCalls())
+                        .containsExactly("greet Alice", "add 3", "reset", "greet [Bob, Carol]")
+                        .inOrder();
+            });
+
+            should("dispatch calls with variable arguments", () -> {
+                greeter.log("%s and %s", "Alice", "Bob");
+
+                assertThat(actor.getCalls()).containsExactly("log Alice and Bob");
+            });
+
+            should("send calls of default methods as calls of abstract methods", () -> {
+                greeter.greetTwice("Alice");
+
+                assertThat(actor.getCalls()).containsExactly("greet Alice", "greet Alice");
+            });
+
+            and("channel is stopped", () -> {
+                channel.stop();
+
+                should("ignore calls", () -> {
+                    greeter.greet("Alice");
+
+                    assertThat(actor.getCalls()).isEmpty();
+                });
+            });
+        });
+
+        subject("annotated interface with a method that returns a value", () -> {
+            final String source = "package test;\n"
+                    + "@simple.actor.TypedActor\n"
+                    + "public interface Counter {\n"
+                    + "    int count();\n"
+                    + "}\n";
+
+            should("fail to compile", () -> {
+                final String errors = compile("test.Counter", source);
+
+                assertThat(errors).contains("@TypedActor methods must return void");
+            });
+        });
+
+        subject("annotated class", () -> {
+            final String source = "package test;\n"
+                    + "@simple.actor.TypedActor\n"
+                    + "public class Counter {}\n";
+
+            should("fail to compile", () -> {
+                final String errors = compile("test.Counter", source);
+
+                assertThat(errors).contains("@TypedActor can only be applied to interfaces");
+            });
+        });
+    }
+
+    private static String compile(final String name, final String source) throws IOException {
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        final StringWriter errors = new StringWriter();
+        try (final StandardJavaFileManager files =
+                     compiler.getStandardFileManager(null, null, null)) {
+            final JavaFileObject file = new SimpleJavaFileObject(
+                    URI.create("string:///" + name.replace('.', '/') + ".java"),
+                    JavaFileObject.Kind.SOURCE) {
+                @Override
+                public CharSequence getCharContent(final boolean ignoreEncodingErrors) {
+                    return source;
+                }
+            };
+            final JavaCompiler.CompilationTask task = compiler.getTask(
+                    errors,
+                    files,
+                    null /*default diagnostic listener*/,
+                    Arrays.asList("-proc:only",
+                                  "-classpath",
+                                  java.lang.System.getProperty("java.class.path")),
+                    null /*no annotated classes*/,
+                    Collections.singletonList(file));
+            task.setProcessors(Collections.singletonList(new TypedActorProcessor()));
+            task.call();
+        }
+        return errors.toString();
+    }
+
+    private static final class RecordingGreeter extends GreeterActor {
+
+        private final List<String> mCalls = new ArrayList<>();
+
+        List<String> getCalls() {
+            return mCalls;
+        }
+
+        @Override
+        public void greet(final String name) {
+            mCalls.add("greet " + name);
+        }
+
+        @Override
+        public void add(final int first, final long second) {
+            mCalls.add("add " + (first + second));
+        }
+
+        @Override
+        public void reset() {
+            mCalls.add("reset");
+        }
+
+        @Override
+        public void greetAll(final List<String> names) {
+            mCalls.add("greet " + names);
+        }
+
+        @Override
+        public void log(final String format, final Object... arguments) {
+            mCalls.add("log " + String.format(format, arguments));
+        }
+    }
+}
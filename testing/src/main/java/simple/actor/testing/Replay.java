@@ -0,0 +1,258 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor.testing;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import simple.actor.Actor;
+import simple.actor.Capture;
+import simple.actor.Channel;
+import simple.actor.Codec;
+import simple.actor.Runner;
+import simple.actor.System;
+
+/**
+ * Feeds messages recorded by a {@link Capture} to an {@link Actor} and measures how the {@code
+ * Actor} keeps up with them.
+ *
+ * <p>The whole log is read and decoded up front, so that reading it does not distort the
+ * measurement. Every {@link #run run} registers the {@code Actor} with a new {@link System}, sends
+ * it all recorded messages, either at their original pace or as fast as possible, and waits until
+ * the {@code Actor} has received them all. The {@link Report} contains the throughput and the
+ * distribution of latencies, measured from the moment a message was sent until the {@code Actor}
+ * finished receiving it.
+ *
+ * @param <M> the type of recorded messages.
+ */
+public final class Replay<M> {
+
+    /** How fast the recorded messages are sent. */
+    public enum Pacing {
+        /** Each message is sent after the same delay after the first one as when recorded. */
+        ORIGINAL,
+        /** Messages are sent one after another without any delay. */
+        FASTEST
+    }
+
+    private final List<M> mMessages = new ArrayList<>();
+    private final long[] mTimes;
+
+    /**
+     * Reads the given log.
+     *
+     * @param path  the file into which messages were recorded.
+     * @param codec the {@link Codec} that decodes messages.
+     *
+     * @throws IOException if the log cannot be read.
+     */
+    public Replay(final Path path, final Codec<M> codec) throws IOException {
+        long[] times = new long[1024];
+        try (final Capture.Reader<M> reader = new Capture.Reader<>(path, codec)) {
+            while (reader.next()) {
+                if (mMessages.size() == times.length) {
+                    times = Arrays.copyOf(times, times.length * 2);
+                }
+                times[mMessages.size()] = reader.getTime(TimeUnit.NANOSECONDS);
+                mMessages.add(reader.getMessage());
+            }
+        }
+        mTimes = Arrays.copyOf(times, mMessages.size());
+    }
+
+    /**
+     * Returns the number of recorded messages.
+     *
+     * @return the number of messages.
+     */
+    public int getMessageCount() {
+        return mMessages.size();
+    }
+
+    /**
+     * Sends all recorded messages to the given {@link Actor} and waits up to the given timeout
+     * until it has received them. The {@link System} created for the run is stopped before this
+     * method returns, even if it fails; the {@link Runner} belongs to the caller, who has to stop
+     * its threads, if any.
+     *
+     * <p>If the {@code Actor} has not received all messages before the timeout, the returned
+     * {@link Report} is not {@link Report#isComplete complete} and only contains the messages that
+     * were received.
+     *
+     * @param runner  the {@code Runner} used by the {@code System} with which the {@code Actor} is
+     *                registered.
+     * @param actor   the {@code Actor} that receives the messages.
+     * @param pacing  how fast the messages are sent.
+     * @param timeout the maximum time to wait for the {@code Actor} to receive all messages.
+     * @param unit    the unit of the timeout.
+     *
+     * @return the report of the run.
+     *
+     * @throws InterruptedException if the calling thread is interrupted while waiting.
+     */
+    public Report run(final Runner runner,
+                      final Actor<M> actor,
+                      final Pacing pacing,
+                      final long timeout,
+                      final TimeUnit unit) throws InterruptedException {
+        final int count = mMessages.size();
+        final long[] sent = new long[count];
+        final long[] latencies = new long[count];
+        final int[] received = {0};
+        final CountDownLatch done = new CountDownLatch(count);
+        final System system = new System.Builder(runner)
+                .interceptor((target, delivery) -> {
+                    if (target != actor) {
+                        delivery.run();
+                        return;
+                    }
+                    try {
+                        delivery.run();
+                    } finally {
+                        // deliveries to the actor are serialized and happen in the order of sends
+                        final int index = received[0]++;
+                        latencies[index] = java.lang.System.nanoTime() - sent[index];
+                        done.countDown();
+                    }
+                })
+                .build();
+        try {
+            final Channel<M> channel = system.register(actor);
+
+            final long start = java.lang.System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                if (pacing == Pacing.ORIGINAL) {
+                    final long due = start + (mTimes[i] - mTimes[0]);
+                    for (long now = java.lang.System.nanoTime(); now < due;
+                         now = java.lang.System.nanoTime()) {
+                        LockSupport.parkNanos(due - now);
+                    }
+                }
+                sent[i] = java.lang.System.nanoTime();
+                if (!channel.send(mMessages.get(i))) {
+                    throw new IllegalStateException("actor stopped during replay");
+                }
+            }
+            final boolean complete = done.await(timeout, unit);
+            final long duration = java.lang.System.nanoTime() - start;
+
+            // the latch is counted down after each latency is written
+            final long[] measured = Arrays.copyOf(latencies, (int) (count - done.getCount()));
+            Arrays.sort(measured);
+            return new Report(complete, measured.length, duration, measured);
+        } finally {
+            system.stop();
+        }
+    }
+
+    /** The measurements of a single {@link #run run}. */
+    public static final class Report {
+
+        private final boolean mComplete;
+        private final int mCount;
+        private final long mDuration;
+        private final long[] mLatencies;
+
+        Report(final boolean complete,
+               final int count,
+               final long duration,
+               final long[] latencies) {
+            mComplete = complete;
+            mCount = count;
+            mDuration = duration;
+            mLatencies = latencies;
+        }
+
+        /**
+         * Returns if the {@link Actor} received all recorded messages before the timeout.
+         *
+         * @return {@code true} if all messages were received, otherwise {@code false}.
+         */
+        public boolean isComplete() {
+            return mComplete;
+        }
+
+        /**
+         * Returns the number of received messages.
+         *
+         * @return the number of messages.
+         */
+        public int getMessageCount() {
+            return mCount;
+        }
+
+        /**
+         * Returns the time from sending the first message until the last one was received, or
+         * until the timeout if the run is not {@link #isComplete complete}.
+         *
+         * @param unit the unit of the returned time.
+         *
+         * @return the duration of the run.
+         */
+        public long getDuration(final TimeUnit unit) {
+            return unit.convert(mDuration, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Returns the number of messages received per second.
+         *
+         * @return the throughput.
+         */
+        public double getThroughput() {
+            return (mDuration == 0) ? 0 : ((mCount * 1e9) / mDuration);
+        }
+
+        /**
+         * Returns the latency below which the given percentage of messages were received.
+         *
+         * @param percentile the percentage of messages, between {@code 0} and {@code 100}.
+         * @param unit       the unit of the returned latency.
+         *
+         * @return the latency at the percentile.
+         */
+        public long getLatency(final double percentile, final TimeUnit unit) {
+            if ((percentile < 0) || (percentile > 100)) {
+                throw new IllegalArgumentException("percentile must be between 0 and 100");
+            }
+            if (mLatencies.length == 0) {
+                return 0;
+            }
+
+            final int index = (int) Math.ceil((percentile / 100) * mLatencies.length) - 1;
+            return unit.convert(mLatencies[Math.max(index, 0)], TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d messages in %d ms (%.0f/s), latency p50 %d us, p99 %d us,"
+                                         + " p99.9 %d us, max %d us",
+                                 mCount,
+                                 getDuration(TimeUnit.MILLISECONDS),
+                                 getThroughput(),
+                                 getLatency(50, TimeUnit.MICROSECONDS),
+                                 getLatency(99, TimeUnit.MICROSECONDS),
+                                 getLatency(99.9, TimeUnit.MICROSECONDS),
+                                 getLatency(100, TimeUnit.MICROSECONDS));
+        }
+    }
+}
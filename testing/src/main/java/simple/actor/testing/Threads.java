@@ -0,0 +1,54 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor.testing;
+
+import java.util.concurrent.CountDownLatch;
+
+/** Helpers for tests that need to start threads and wait for them. */
+public final class Threads {
+
+    /**
+     * Creates a daemon {@link Thread} that will execute the given {@link Runnable}. Daemon threads
+     * do not prevent the JVM from exiting if a test forgets to stop them. This method can be used
+     * as a {@link java.util.concurrent.ThreadFactory}.
+     *
+     * @param runnable the {@code Runnable} that the thread will execute.
+     *
+     * @return the new, not yet started, daemon thread.
+     */
+    public static Thread newDaemon(final Runnable runnable) {
+        final Thread thread = new Thread(runnable);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * Waits until the given latch has counted down to zero. If the waiting thread is interrupted,
+     * it returns early with its interrupt status set.
+     *
+     * @param latch the latch to wait for.
+     */
+    public static void await(final CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Threads() {}
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor.testing;
+
+import org.junit.runner.RunWith;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+import alioli.Scenario;
+import simple.actor.Capture;
+import simple.actor.Codec;
+import simple.actor.ExecutorRunner;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/** Tests for {@link Replay}. */
+@RunWith(Scenario.Runner.class)
+public class ReplayTest extends Scenario {
+    {
+        subject("replay of a captured stream", () -> {
+            final Path path = Files.createTempFile("replay", ".log");
+            path.toFile().deleteOnExit();
+            final Capture<Integer> capture =
+                    new Capture<>(new SpyChannel<>(), new IntegerCodec(), path);
+            for (int i = 0; i < 100; i++) {
+                capture.send(i);
+            }
+            Thread.sleep(20);
+            capture.send(100);
+            capture.stop();
+            final Replay<Integer> replay = new Replay<>(path, new IntegerCodec());
+            final SpyActor<Integer> actor = new SpyActor<>();
+
+            should("read all messages", () -> {
+                assertThat(replay.getMessageCount()).isEqualTo(101);
+            });
+
+            should("deliver all messages in order as fast as possible", () -> {
+                final Replay.Report report =
+                        replay.run(new SameThreadRunner(), actor, Replay.Pacing.FASTEST,
+                                   5, TimeUnit.SECONDS);
+
+                assertThat(actor.getReceivedMessages()).hasSize(101);
+                assertThat(actor.getReceivedMessages().get(100)).isEqualTo(100);
+                assertThat(report.isComplete()).isTrue();
+                assertThat(report.getMessageCount()).isEqualTo(101);
+                assertThat(report.getThroughput()).isGreaterThan(0.0);
+                assertThat(report.getLatency(50, TimeUnit.NANOSECONDS))
+                        .isAtMost(report.getLatency(100, TimeUnit.NANOSECONDS));
+            });
+
+            should("deliver messages at the original pace", () -> {
+                final Replay.Report report =
+                        replay.run(new SameThreadRunner(), actor, Replay.Pacing.ORIGINAL,
+                                   5, TimeUnit.SECONDS);
+
+                assertThat(actor.getReceivedMessages()).hasSize(101);
+                assertThat(report.getDuration(TimeUnit.MILLISECONDS)).isAtLeast(20L);
+            });
+
+            should("stop waiting after the timeout and stop the actor", () -> {
+                final Queue<Runnable> pending = new ArrayDeque<>();
+                final Replay.Report report = replay.run(new ExecutorRunner(pending::add), actor,
+                                                        Replay.Pacing.FASTEST,
+                                                        10, TimeUnit.MILLISECONDS);
+
+                assertThat(report.isComplete()).isFalse();
+                assertThat(report.getMessageCount()).isEqualTo(0);
+                while (!pending.isEmpty()) {
+                    pending.remove().run();
+                }
+                assertThat(actor.isStopped()).isTrue();
+            });
+        });
+    }
+
+    private static final class IntegerCodec implements Codec<Integer> {
+
+        @Override
+        public ByteBuffer encode(final Integer value) {
+            return (ByteBuffer) ByteBuffer.allocate(Integer.BYTES).putInt(value).flip();
+        }
+
+        @Override
+        public Integer decode(final ByteBuffer buffer) {
+            return buffer.getInt();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2017 Sanjin Sehic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package simple.actor.testing;
+
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import alioli.Scenario;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/** Tests for {@link Threads}. */
+@RunWith(Scenario.Runner.class)
+public class ThreadsTest extends Scenario {
+    {
+        subject("daemon thread", () -> {
+            final AtomicBoolean executed = new AtomicBoolean(false);
+            final Thread thread = Threads.newDaemon(() -> executed.set(true));
+
+            should("be a daemon", () -> {
+                assertThat(thread.isDaemon()).isTrue();
+            });
+
+            should("not be started", () -> {
+                assertThat(thread.getState()).isEqualTo(Thread.State.NEW);
+            });
+
+            when("started", () -> {
+                thread.start();
+                thread.join();
+
+                should("execute the runnable", () -> {
+                    assertThat(executed.get()).isTrue();
+                });
+            });
+        });
+
+        subject("await", () -> {
+            final CountDownLatch latch = new CountDownLatch(1);
+
+            when("latch is counted down", () -> {
+                latch.countDown();
+                Threads.await(latch);
+
+                should("return", () -> {
+                    assertThat(latch.getCount()).isEqualTo(0);
+                });
+            });
+
+            when("thread is interrupted", () -> {
+                Thread.currentThread().interrupt();
+                Threads.await(latch);
+
+                should("return with the interrupt status set", () -> {
+                    assertThat(Thread.interrupted()).isTrue();
+                });
+            });
+        });
+    }
+}